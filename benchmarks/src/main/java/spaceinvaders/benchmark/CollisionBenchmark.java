@@ -0,0 +1,130 @@
+package spaceinvaders.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import spaceinvaders.game.EntityStore;
+import spaceinvaders.game.collision.SpatialGrid;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the meteor-projectile collision check: all pairs (as Game did before) against the spatial grid broadphase.
+ * <p>
+ * Meteors are spread over the canvas and the area above it, as after Utility.setPositionAboveCanvas.
+ * Projectiles are volleys of the level four weapon (six shots at -30, 0 and 30 degrees) fired across the canvas,
+ * one projectile for every ten meteors, so the all pairs check grows quadratically with the number of meteors.
+ * Every operation moves all entities by one frame and counts all colliding meteor-projectile pairs.
+ * <p>
+ * The grid gets finer with the number of meteors (about METEORS_PER_CELL meteors per cell on the canvas),
+ * so the number of candidates per projectile depends only on how many meteors really are near it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CollisionBenchmark {
+    private static final double FRAME_TIME = 16; //in milliseconds
+    private static final double METEOR_SIZE = 0.05;
+    private static final double METEOR_SPEED = 0.0003;
+    private static final double SHOT_WIDTH = 0.0035;
+    private static final double SHOT_HEIGHT = 0.035;
+    private static final double SHOT_SPEED = -0.0006;
+    private static final double[] LEVEL_FOUR_ANGLES = {-30, -30, 0, 0, 30, 30};
+    private static final int METEORS_PER_PROJECTILE = 10;
+    private static final int MIN_GRID_SIZE = 16;
+    private static final int METEORS_PER_CELL = 4;
+
+    @Param({"1000", "10000", "100000"})
+    public int meteors;
+
+    private EntityStore meteorStore;
+    private EntityStore projectileStore;
+    private SpatialGrid grid;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+
+        meteorStore = new EntityStore(meteors);
+        for (int i = 0; i < meteors; i++) {
+            int meteor = meteorStore.add(0);
+            meteorStore.setSize(meteor, METEOR_SIZE, METEOR_SIZE);
+            meteorStore.setPos(meteor, random.nextDouble() * (1 - METEOR_SIZE), 2 * random.nextDouble() - 1);
+            meteorStore.setSpeedY(meteor, METEOR_SPEED);
+        }
+
+        int numProjectiles = meteors / METEORS_PER_PROJECTILE;
+        projectileStore = new EntityStore(numProjectiles);
+        while (projectileStore.size() < numProjectiles) {
+            double weaponPosX = random.nextDouble();
+            double weaponPosY = random.nextDouble();
+            for (int i = 0; i < LEVEL_FOUR_ANGLES.length && projectileStore.size() < numProjectiles; i++) {
+                double angle = Math.toRadians(LEVEL_FOUR_ANGLES[i]);
+                int shot = projectileStore.add(0);
+                projectileStore.setSize(shot, SHOT_WIDTH, SHOT_HEIGHT);
+                projectileStore.setPos(shot, weaponPosX + (i % 2 - 1) * SHOT_WIDTH, weaponPosY);
+                projectileStore.setSpeedX(shot, SHOT_SPEED * Math.sin(angle));
+                projectileStore.setSpeedY(shot, SHOT_SPEED * Math.cos(angle));
+                projectileStore.setRotationAngle(shot, LEVEL_FOUR_ANGLES[i]);
+            }
+        }
+
+        int gridSize = Math.max(MIN_GRID_SIZE, (int) Math.sqrt((double) meteors / METEORS_PER_CELL));
+        grid = new SpatialGrid(gridSize, gridSize);
+        grid.update(meteorStore);
+    }
+
+    @Benchmark
+    public int allPairs() {
+        advance();
+
+        int hits = 0;
+        for (int shot = 0; shot < projectileStore.size(); shot++) {
+            for (int meteor = 0; meteor < meteorStore.size(); meteor++) {
+                if (projectileStore.checkCollision(shot, meteorStore, meteor))
+                    hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int spatialGrid() {
+        advance();
+
+        grid.update(meteorStore);
+        int hits = 0;
+        for (int shot = 0; shot < projectileStore.size(); shot++) {
+            int numCandidates = grid.query(projectileStore.getPosX(shot), projectileStore.getPosY(shot),
+                    projectileStore.getWidth(shot), projectileStore.getHeight(shot));
+            for (int i = 0; i < numCandidates; i++) {
+                if (projectileStore.checkCollision(shot, meteorStore, grid.getCandidate(i)))
+                    hits++;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Move all entities by one frame, entities that leave the canvas are wrapped around,
+     * so the distribution of entities does not change between operations
+     */
+    private void advance() {
+        meteorStore.update(FRAME_TIME);
+        for (int meteor = 0; meteor < meteorStore.size(); meteor++) {
+            if (meteorStore.getPosY(meteor) > 1)
+                meteorStore.setPosY(meteor, meteorStore.getPosY(meteor) - 2);
+        }
+
+        projectileStore.update(FRAME_TIME);
+        for (int shot = 0; shot < projectileStore.size(); shot++) {
+            double posX = projectileStore.getPosX(shot);
+            if (projectileStore.getPosY(shot) < -SHOT_HEIGHT)
+                projectileStore.setPosY(shot, 1);
+            if (posX < 0 || posX > 1)
+                projectileStore.setPosX(shot, posX - Math.floor(posX));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package spaceinvaders.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import spaceinvaders.game.EntityStore;
+import spaceinvaders.game.Meteor;
+import spaceinvaders.game.Projectile;
+import spaceinvaders.game.Simulation;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one tick of the game logic (Simulation.updateItems and Simulation.handleCollisions)
+ * with more meteors and projectiles than a real game has.
+ * <p>
+ * Meteors are spread over the canvas and the area above it, projectiles fly straight up from random positions.
+ * Projectiles removed by the operation (hit a meteor or left the canvas) are replaced by new ones
+ * at random positions, so the number of entities is the same for every operation.
+ * The ship is moved below the canvas, so the game never ends and only the projectile hits are measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SimulationBenchmark {
+    private static final double FRAME_TIME = 16; //in milliseconds
+    private static final double OUT_OF_REACH = 2; //position of the ship below the canvas
+
+    @Param({"20", "1000", "10000", "100000"})
+    public int meteors;
+
+    @Param({"0", "100", "1000", "10000"})
+    public int projectiles;
+
+    private final Random random = new Random(42);
+    private Simulation simulation;
+    private EntityStore projectileStore;
+
+    @Setup
+    public void setUp() {
+        simulation = new Simulation();
+        simulation.startGame();
+
+        EntityStore ships = simulation.getShips();
+        ships.setPosY(0, OUT_OF_REACH);
+
+        EntityStore meteorStore = simulation.getMeteors();
+        while (meteorStore.size() < meteors) {
+            int meteor = Meteor.spawnMeteor(meteorStore, random, random);
+            meteorStore.setPosY(meteor, 2 * random.nextDouble() - 1);
+        }
+
+        projectileStore = simulation.getProjectiles();
+        refillProjectiles();
+
+        //build the hit masks and place the meteors in the grid before the measurement
+        simulation.handleCollisions();
+        refillProjectiles();
+    }
+
+    @Benchmark
+    public int updateItems() {
+        simulation.updateItems(FRAME_TIME);
+        return refillProjectiles();
+    }
+
+    @Benchmark
+    public int handleCollisions() {
+        simulation.handleCollisions();
+        return refillProjectiles();
+    }
+
+    /**
+     * Add projectiles at random positions on the canvas until there are as many as the parameter
+     * @return number of added projectiles
+     */
+    private int refillProjectiles() {
+        int added = 0;
+        while (projectileStore.size() < projectiles) {
+            int shot = projectileStore.add(Simulation.PROJECTILE_TYPE);
+            projectileStore.setSize(shot, Projectile.getShotWidth(), Projectile.getShotHeight());
+            projectileStore.setPos(shot, random.nextDouble(), random.nextDouble());
+            projectileStore.setSpeedY(shot, Projectile.getShotSpeedY(0));
+            added++;
+        }
+        return added;
+    }
+}
@@ -0,0 +1,122 @@
+package spaceinvaders.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import spaceinvaders.game.EntityStore;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of moving sprites and of the rectangular collision check, for sprite objects and for the entity store.
+ * <p>
+ * Every operation moves all sprites by one frame (update) or checks one ship sized sprite
+ * against all sprites (checkCollision), so the cost per sprite is the score divided by the number of sprites.
+ * Each benchmark runs in its own fork, so the collision checks always see the initial positions.
+ * <p>
+ * The sprite objects are the object-per-entity model that the game used before the entity store.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpriteBenchmark {
+    private static final double FRAME_TIME = 16; //in milliseconds
+    private static final double SIZE = 0.05;
+    private static final double SPEED = 0.0003;
+
+    @Param({"20", "1000", "100000"})
+    public int sprites;
+
+    private Sprite[] spriteArray;
+    private EntityStore store;
+    private Sprite ship;
+    private int storeShip;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+
+        spriteArray = new Sprite[sprites];
+        store = new EntityStore(sprites + 1);
+        for (int i = 0; i < sprites; i++) {
+            double posX = random.nextDouble() * (1 - SIZE);
+            double posY = 2 * random.nextDouble() - 1;
+
+            spriteArray[i] = new Sprite(posX, posY, SIZE, SIZE, 0, SPEED);
+
+            int index = store.add(0);
+            store.setSize(index, SIZE, SIZE);
+            store.setPos(index, posX, posY);
+            store.setSpeedY(index, SPEED);
+        }
+
+        ship = new Sprite(0.5 - SIZE, 0.5 - SIZE, 2 * SIZE, 2 * SIZE, 0, 0);
+        storeShip = store.add(0);
+        store.setSize(storeShip, 2 * SIZE, 2 * SIZE);
+        store.setPos(storeShip, 0.5 - SIZE, 0.5 - SIZE);
+    }
+
+    @Benchmark
+    public void spriteUpdate() {
+        for (Sprite sprite : spriteArray)
+            sprite.update(FRAME_TIME);
+    }
+
+    @Benchmark
+    public void storeUpdate() {
+        store.update(FRAME_TIME);
+    }
+
+    @Benchmark
+    public int spriteCheckCollision() {
+        int hits = 0;
+        for (Sprite sprite : spriteArray) {
+            if (ship.checkCollision(sprite))
+                hits++;
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int storeCheckCollision() {
+        int hits = 0;
+        for (int i = 0; i < sprites; i++) {
+            if (store.checkCollision(storeShip, store, i))
+                hits++;
+        }
+        return hits;
+    }
+
+    /**
+     * One entity as an object
+     */
+    private static class Sprite {
+        private double posX;
+        private double posY;
+        private final double width;
+        private final double height;
+        private final double speedX;
+        private final double speedY;
+
+        Sprite(double posX, double posY, double width, double height, double speedX, double speedY) {
+            this.posX = posX;
+            this.posY = posY;
+            this.width = width;
+            this.height = height;
+            this.speedX = speedX;
+            this.speedY = speedY;
+        }
+
+        void update(double deltaTime) {
+            posX += speedX * deltaTime;
+            posY += speedY * deltaTime;
+        }
+
+        boolean checkCollision(Sprite sprite) {
+            return sprite.posX + sprite.width > posX && sprite.posY + sprite.height > posY
+                    && sprite.posX < posX + width && sprite.posY < posY + height;
+        }
+    }
+}
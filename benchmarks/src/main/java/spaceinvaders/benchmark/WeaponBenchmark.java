@@ -0,0 +1,42 @@
+package spaceinvaders.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import spaceinvaders.game.EntityStore;
+import spaceinvaders.game.Weapon;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one shot of the weapon at each level.
+ * Every operation fires one volley into an empty projectile store and clears it again.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WeaponBenchmark {
+    private static final int PROJECTILE_TYPE = 0;
+
+    @Param({"1", "2", "3", "4"})
+    public int level;
+
+    private Weapon weapon;
+    private EntityStore projectiles;
+
+    @Setup
+    public void setUp() {
+        weapon = new Weapon();
+        while (weapon.getLevel() < level)
+            weapon.upgrade();
+        projectiles = new EntityStore(weapon.getProjectilesPerShot());
+    }
+
+    @Benchmark
+    public int fire() {
+        int fired = weapon.fire(0.5, 0.9, projectiles, PROJECTILE_TYPE);
+        projectiles.clear();
+        return fired;
+    }
+}
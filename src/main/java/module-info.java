@@ -1,6 +1,10 @@
 module spaceinvaders.spaceinvader {
     requires javafx.controls;
     requires javafx.fxml;
+    requires java.desktop;
+    requires jdk.jfr;
+    requires java.management;
+    requires jdk.management;
 
 
     opens spaceinvaders to javafx.fxml;
@@ -9,8 +13,20 @@ module spaceinvaders.spaceinvader {
     opens spaceinvaders.hud to javafx.fxml;
     exports spaceinvaders.game;
     opens spaceinvaders.game to javafx.fxml;
+    exports spaceinvaders.game.collision;
+    opens spaceinvaders.game.collision to javafx.fxml;
+    exports spaceinvaders.game.render;
+    opens spaceinvaders.game.render to javafx.fxml;
     exports spaceinvaders.menu;
     opens spaceinvaders.menu to javafx.fxml;
     exports spaceinvaders.background;
     opens spaceinvaders.background to javafx.fxml;
+    exports spaceinvaders.loading;
+    opens spaceinvaders.loading to javafx.fxml;
+    exports spaceinvaders.replay;
+    opens spaceinvaders.replay to javafx.fxml;
+    exports spaceinvaders.stats;
+    opens spaceinvaders.stats to javafx.fxml;
+    exports spaceinvaders.stress;
+    opens spaceinvaders.stress to javafx.fxml;
 }
\ No newline at end of file
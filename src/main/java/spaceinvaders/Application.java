@@ -1,15 +1,61 @@
 package spaceinvaders;
 
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
 import javafx.stage.Stage;
+import spaceinvaders.loading.LoadingScreen;
+import spaceinvaders.loading.ResourcePreloader;
+import spaceinvaders.loading.StartupReport;
 
+/**
+ * Shows the loading screen while the resources are preloaded in parallel, then builds and shows the game.
+ * The startup report (time of every asset, time to the first frame) is printed when the game window is drawn.
+ */
 public class Application extends javafx.application.Application {
+    private static final long LAUNCH_TIME = System.nanoTime(); //the class is initialized by main
+    private static final double LOADING_WIDTH = 300;
+    private static final double LOADING_HEIGHT = 120;
+    private static final int NUM_PRELOAD_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
     @Override
     public void start(Stage stage) {
+        ResourcePreloader preloader = new ResourcePreloader(NUM_PRELOAD_THREADS);
+        LoadingScreen loadingScreen = new LoadingScreen(preloader, LOADING_WIDTH, LOADING_HEIGHT);
+
+        stage.setScene(new Scene((Parent) loadingScreen.getNode()));
+        stage.setResizable(false);
+        stage.setTitle("Space Invaders");
+        stage.show();
+
+        preloader.start(LAUNCH_TIME).thenAccept(report -> Platform.runLater(() -> showGame(stage, preloader, report)));
+    }
+
+    /**
+     * Build the game, close the loading screen and print the startup report after the first frame of the game.
+     * The preloaded images that are not used by the game are released after the game is built.
+     */
+    private void showGame(Stage loadingStage, ResourcePreloader preloader, StartupReport report) {
         GameViewManager gameViewManager = new GameViewManager();
+        report.markSceneBuilt();
+        preloader.releaseImages();
+        report.setImageMemory(ImageCache.getDefault().size(), ImageCache.getDefault().getDecodedBytes());
+
         gameViewManager.getStage().show();
+        loadingStage.close();
+
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                report.markFirstFrame();
+                System.out.print(report.format());
+            }
+        }.start();
     }
 
     public static void main(String[] args) {
         launch();
     }
-}
\ No newline at end of file
+}
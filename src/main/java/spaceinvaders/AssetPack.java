@@ -0,0 +1,207 @@
+package spaceinvaders;
+
+import spaceinvaders.game.collision.HitMask;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Texture atlas of the sprite images with their hit masks, baked at build time by tools.AtlasPacker.
+ * <p>
+ * Pack format (big-endian):
+ *  header: magic, version, atlas width, atlas height, mask rotation step, mask resolution, number of entries
+ *  entries: resource name (UTF), x, y, width, height of the region in the atlas, number of masks, masks (HitMask),
+ *   only the images that collide have masks, the number of masks of the others is 0
+ *  atlas: width * height pixels in the premultiplied ARGB format, row by row
+ * <p>
+ * The pack is memory-mapped if it is a file and read into memory if it is packed in a jar.
+ * The atlas pixels are not copied, getAtlasPixels is a view of the mapped file.
+ * This class doesn't depend on JavaFX, the atlas image is created by render.SpriteAtlas.
+ */
+public class AssetPack {
+    public static final String FILE_NAME = "assets.pack";
+    public static final int MAGIC = 0x53494150; //"SIAP"
+    public static final int VERSION = 1;
+
+    /**
+     * Rectangle of a sprite image in the atlas, in pixels
+     */
+    public record Region(int x, int y, int width, int height) {
+    }
+
+    private static AssetPack defaultPack;
+    private static boolean isDefaultPackLoaded;
+
+    private final ByteBuffer buffer;
+    private final int atlasWidth;
+    private final int atlasHeight;
+    private final int atlasOffset;
+    private final int maskRotationStep;
+    private final int maskResolution;
+    private final Map<Resource, Region> regions = new EnumMap<>(Resource.class);
+    private final Map<Resource, Integer> maskOffsets = new EnumMap<>(Resource.class); //position of the number of masks
+    private final Map<Resource, HitMask[]> hitMasks = new EnumMap<>(Resource.class); //decoded on the first request
+
+    private AssetPack(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+
+        if (buffer.getInt() != MAGIC)
+            throw new IOException("Not an asset pack");
+        int version = buffer.getInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported asset pack version " + version);
+
+        atlasWidth = buffer.getInt();
+        atlasHeight = buffer.getInt();
+        maskRotationStep = buffer.getInt();
+        maskResolution = buffer.getInt();
+        int numEntries = buffer.getInt();
+
+        for (int entry = 0; entry < numEntries; entry++) {
+            Resource resource = Resource.valueOf(readUtf(buffer));
+            regions.put(resource, new Region(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt()));
+
+            //masks are skipped, most of the images never collide
+            int maskOffset = buffer.position();
+            int numMasks = buffer.getInt();
+            if (numMasks > 0)
+                maskOffsets.put(resource, maskOffset);
+            for (int i = 0; i < numMasks; i++)
+                HitMask.skip(buffer);
+        }
+
+        atlasOffset = buffer.position();
+        if (buffer.remaining() < atlasWidth * atlasHeight * Integer.BYTES)
+            throw new IOException("Truncated asset pack");
+    }
+
+    /**
+     * Get the pack baked into the classes of the game, null if there is no pack (the build step was skipped)
+     */
+    public static synchronized AssetPack getDefault() {
+        if (!isDefaultPackLoaded) {
+            isDefaultPackLoaded = true;
+            URL url = AssetPack.class.getResource(FILE_NAME);
+            if (url != null)
+                defaultPack = load(url);
+        }
+        return defaultPack;
+    }
+
+    /**
+     * Load the pack, a file is memory-mapped, other URLs (e.g. an entry of a jar) are read into memory
+     */
+    public static AssetPack load(URL url) {
+        try {
+            ByteBuffer buffer;
+            if ("file".equals(url.getProtocol())) {
+                try (FileChannel channel = FileChannel.open(Path.of(url.toURI()), StandardOpenOption.READ)) {
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+            }
+            else {
+                try (InputStream inputStream = url.openStream()) {
+                    buffer = ByteBuffer.wrap(inputStream.readAllBytes());
+                }
+            }
+            return new AssetPack(buffer);
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException("Can't load " + url, exception);
+        }
+        catch (URISyntaxException exception) {
+            throw new IllegalArgumentException(exception);
+        }
+    }
+
+    /**
+     * Width of the image of the resource in pixels, from the default pack if the image is there
+     */
+    public static int getImageWidth(Resource resource) {
+        AssetPack pack = getDefault();
+        return pack != null && pack.contains(resource) ? pack.getRegion(resource).width()
+                : PngImage.of(resource).getWidth();
+    }
+
+    /**
+     * Height of the image of the resource in pixels, from the default pack if the image is there
+     */
+    public static int getImageHeight(Resource resource) {
+        AssetPack pack = getDefault();
+        return pack != null && pack.contains(resource) ? pack.getRegion(resource).height()
+                : PngImage.of(resource).getHeight();
+    }
+
+    public boolean contains(Resource resource) {
+        return regions.containsKey(resource);
+    }
+
+    /**
+     * Region of the image of the resource in the atlas, null if the image is not in the pack
+     */
+    public Region getRegion(Resource resource) {
+        return regions.get(resource);
+    }
+
+    /**
+     * Masks of the image rotated by every maskRotationStep degrees,
+     * null if the image is not in the pack or was packed without masks
+     */
+    public synchronized HitMask[] getHitMasks(Resource resource) {
+        HitMask[] masks = hitMasks.get(resource);
+        Integer offset = maskOffsets.get(resource);
+        if (masks == null && offset != null) {
+            ByteBuffer maskBuffer = buffer.duplicate().position(offset);
+            masks = new HitMask[maskBuffer.getInt()];
+            for (int i = 0; i < masks.length; i++)
+                masks[i] = HitMask.read(maskBuffer);
+            hitMasks.put(resource, masks);
+        }
+        return masks;
+    }
+
+    /**
+     * In degrees
+     */
+    public int getMaskRotationStep() {
+        return maskRotationStep;
+    }
+
+    public int getMaskResolution() {
+        return maskResolution;
+    }
+
+    public int getAtlasWidth() {
+        return atlasWidth;
+    }
+
+    public int getAtlasHeight() {
+        return atlasHeight;
+    }
+
+    /**
+     * Pixels of the atlas in the premultiplied ARGB format, row by row.
+     * The buffer is a read-only view of the pack, every call returns a new view positioned at the first pixel.
+     */
+    public IntBuffer getAtlasPixels() {
+        return buffer.duplicate().position(atlasOffset).slice().asIntBuffer().asReadOnlyBuffer();
+    }
+
+    private static String readUtf(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        //the names of the resources are ASCII, so modified UTF-8 of DataOutput.writeUTF is plain UTF-8
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
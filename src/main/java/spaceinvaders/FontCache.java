@@ -0,0 +1,88 @@
+package spaceinvaders;
+
+import javafx.scene.text.Font;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache of the fonts of the resources.
+ * <p>
+ * Every font file is parsed once, when the font is requested for the first time. The parsed font is registered
+ * in JavaFX, so the other sizes are created by its name without reading the file again.
+ * Sizes are quantized to whole points, all nodes with the same size share one Font object.
+ * If the file can't be loaded, the default JavaFX font is used.
+ */
+public class FontCache {
+    private static final FontCache DEFAULT_CACHE = new FontCache();
+
+    private record Key(Resource resource, int size) {
+    }
+
+    private final Map<Resource, String> resourceToName = new EnumMap<>(Resource.class);
+    private final Map<Key, Font> fonts = new HashMap<>();
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Cache that is used by Utility.loadFont
+     */
+    public static FontCache getDefault() {
+        return DEFAULT_CACHE;
+    }
+
+    /**
+     * Get the font of the resource, the size is rounded down to whole points (at least 1)
+     */
+    public synchronized Font get(Resource resource, double size) {
+        Key key = new Key(resource, Math.max(1, (int) size));
+        Font font = fonts.get(key);
+        if (font != null) {
+            hits++;
+            return font;
+        }
+
+        misses++;
+        String name = resourceToName.get(resource);
+        if (name == null) {
+            font = parse(resource, key.size());
+            resourceToName.put(resource, font.getName());
+        }
+        else {
+            font = new Font(name, key.size());
+        }
+        fonts.put(key, font);
+        return font;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Number of cached sizes of all fonts
+     */
+    public synchronized int size() {
+        return fonts.size();
+    }
+
+    private static Font parse(Resource resource, int size) {
+        try (InputStream inputStream = resource.openStream()) {
+            Font font = Font.loadFont(inputStream, size);
+            if (font != null)
+                return font;
+        }
+        catch (IOException exception) {
+            //fall through to the default font
+        }
+        return new Font(size);
+    }
+}
@@ -0,0 +1,69 @@
+package spaceinvaders;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.Arrays;
+
+/**
+ * One frame timer for everything that is redrawn every frame (the game, the background).
+ * <p>
+ * The clock runs only while it has listeners. All listeners are called in the same pulse in the order
+ * they were added, so animations stay in phase. Listeners may be added and removed during a frame,
+ * the change takes effect in the next frame.
+ */
+public class FrameClock {
+    @FunctionalInterface
+    public interface FrameListener {
+        /**
+         * @param deltaTime time since the previous frame in milliseconds, 0 in the first frame of the clock
+         */
+        void onFrame(double deltaTime);
+    }
+
+    private final AnimationTimer timer;
+    private long lastFrameTime = 0;
+
+    private FrameListener[] listeners = new FrameListener[0]; //replaced on change, so frames don't allocate
+
+    public FrameClock() {
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                double deltaTime = lastFrameTime == 0 ? 0 : Utility.nanoToMilliseconds(now - lastFrameTime);
+                lastFrameTime = now;
+
+                for (FrameListener listener : listeners)
+                    listener.onFrame(deltaTime);
+            }
+        };
+    }
+
+    /**
+     * Call the listener every frame, the clock is started with the first listener
+     */
+    public void addListener(FrameListener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        if (listeners.length == 1) {
+            lastFrameTime = 0;
+            timer.start();
+        }
+    }
+
+    /**
+     * Stop calling the listener, the clock is stopped with the last listener
+     */
+    public void removeListener(FrameListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                FrameListener[] newListeners = new FrameListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, newListeners.length - i);
+                listeners = newListeners;
+                break;
+            }
+        }
+        if (listeners.length == 0)
+            timer.stop();
+    }
+}
@@ -1,13 +1,37 @@
 package spaceinvaders;
 
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
 import spaceinvaders.background.SpaceBackground;
+import spaceinvaders.game.DynamicResolution;
+import spaceinvaders.game.FixedTimestep;
 import spaceinvaders.game.Game;
+import spaceinvaders.game.GameConfig;
+import spaceinvaders.game.GameEvent;
+import spaceinvaders.game.GameEvents;
 import spaceinvaders.game.Ship;
+import spaceinvaders.game.render.SpriteBitmapCache;
+import spaceinvaders.hud.CanvasHUD;
 import spaceinvaders.hud.HUD;
 import spaceinvaders.menu.Menu;
+import spaceinvaders.replay.Replay;
+import spaceinvaders.stats.PerformanceOverlay;
+import spaceinvaders.stats.PerformanceStats;
+import spaceinvaders.stress.StressReport;
+import spaceinvaders.stress.StressScenario;
+import spaceinvaders.stress.StressTest;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The class that controls all elements of the game
@@ -21,13 +45,89 @@ public class GameViewManager {
     private static final double GAME_WIDTH = 600;
     private static final double GAME_HEIGHT = 600;
 
+    /**
+     * The window icon is downsampled to this size, larger pixels are never shown
+     */
+    private static final int ICON_SIZE = 32;
+
+    /**
+     * The simulation runs at a fixed rate independent of the display refresh rate,
+     * after a stall at most MAX_CATCH_UP_TICKS ticks are run in one frame
+     */
+    private static final double SIMULATION_RATE = 60; //ticks per second
+    private static final int MAX_CATCH_UP_TICKS = 5;
+
+    /**
+     * System property of the sprite cache: if it is true, the sprites are drawn from images pre-scaled to the game size
+     * and pre-rotated (every degree, see SpriteBitmapCache), SPRITE_CACHE_BUDGET is enough for all meteor angles,
+     * otherwise the sprites are scaled and rotated every time they are drawn
+     */
+    private static final String SPRITE_CACHE_PROPERTY = "spaceinvaders.spriteCache";
+    private static final long SPRITE_CACHE_BUDGET = 32L * 1024 * 1024; //in bytes
+
+    /**
+     * System property of the dynamic resolution: if it is true, the game canvas is rendered at a lower resolution
+     * (down to MIN_RENDER_SCALE of the full one) while the frames take longer than one tick,
+     * after PROBE_FRAMES frames within the budget a higher resolution is tried again
+     */
+    private static final String DYNAMIC_RESOLUTION_PROPERTY = "spaceinvaders.dynamicResolution";
+    private static final double MIN_RENDER_SCALE = 0.5;
+    private static final int PROBE_FRAMES = 120;
+
+    /**
+     * System property of the dirty regions: if it is true, only the changed parts of the game canvas are redrawn
+     * while they are at most DIRTY_AREA_THRESHOLD of the canvas area (see RenderBatch),
+     * otherwise the whole canvas is redrawn on every frame
+     */
+    private static final String DIRTY_REGIONS_PROPERTY = "spaceinvaders.dirtyRegions";
+    private static final double DIRTY_AREA_THRESHOLD = 0.5;
+
+    /**
+     * System property of the HUD mode: if it is true, the lives and the score are drawn into the game canvas
+     * (see CanvasHUD), otherwise the HUD is a separate node over the game
+     */
+    private static final String CANVAS_HUD_PROPERTY = "spaceinvaders.canvasHud";
+
+    /**
+     * System property of the parallel entity update: stores with at least this number of entities are moved
+     * in parallel on the common pool (see Simulation.setParallelUpdate), if it is not set, the stores are moved
+     * sequentially (the stress test uses the threshold of its scenario)
+     */
+    private static final String PARALLEL_UPDATE_PROPERTY = "spaceinvaders.parallelUpdate";
+
+    /**
+     * Key that shows and hides the performance overlay
+     */
+    private static final KeyCode OVERLAY_KEY = KeyCode.F3;
+
+    /**
+     * System properties of the replays (see spaceinvaders.replay):
+     * if RECORD_PROPERTY is a directory, every game is saved to it when it ends,
+     * if REPLAY_PROPERTY is a replay file, the start button shows the recorded game instead of a new one
+     */
+    private static final String RECORD_PROPERTY = "spaceinvaders.record";
+    private static final String REPLAY_PROPERTY = "spaceinvaders.replay";
+
+    /**
+     * System property of the stress test (see spaceinvaders.stress): if it is set, the standard stress scenario
+     * is played instead of the menu, the report is written to the file of the property and the window is closed
+     */
+    private static final String STRESS_PROPERTY = "spaceinvaders.stress";
+    private static final double STRESS_TARGET_FPS = 60;
+    private static final long STRESS_SEED = 1;
+
     private final Stage stage;
     private final Scene scene;
     private final StackPane pane;
 
+    private final SpaceBackground background;
     private final Menu menu;
     private final Game game;
-    private final HUD hud;
+    private final boolean isCanvasHud;
+    private HUD hud; //only during the game, null if the hud is drawn into the game canvas
+    private CanvasHUD canvasHud; //only during the game
+    private final PerformanceStats performanceStats;
+    private final PerformanceOverlay performanceOverlay;
 
     private boolean isLeftPressed;
     private boolean isRightPressed;
@@ -42,25 +142,84 @@ public class GameViewManager {
         stage.setScene(scene);
         stage.setResizable(false);
         stage.setTitle("Space Invaders");
-        stage.getIcons().add(Utility.getImage(Resource.LOGO));
+        stage.getIcons().add(ImageCache.getDefault().acquire(Resource.LOGO, ICON_SIZE, ICON_SIZE));
+        stage.setOnHidden(event -> dispose());
 
-        //create background node
-        SpaceBackground background = new SpaceBackground(GAME_WIDTH, GAME_HEIGHT);
+        //the background and the game are animated by one clock
+        FrameClock frameClock = new FrameClock();
+
+        //create background node, it scrolls only during the game
+        background = new SpaceBackground(GAME_WIDTH, GAME_HEIGHT, frameClock);
         pane.getChildren().add(background.getNode());
 
-        //create game node
-        game = new Game(GAME_WIDTH, GAME_HEIGHT);
-        game.setOnTickAction(this::updateHud);
+        //create game node, the stress test has its own balance
+        String stressReportFile = System.getProperty(STRESS_PROPERTY);
+        StressScenario stressScenario = stressReportFile == null ? null : StressScenario.standard();
+        game = new Game(GAME_WIDTH, GAME_HEIGHT, frameClock,
+                stressScenario == null ? GameConfig.DEFAULT : stressScenario.config());
+        game.setFixedTimestep(new FixedTimestep(SIMULATION_RATE, MAX_CATCH_UP_TICKS));
+        if (Boolean.getBoolean(SPRITE_CACHE_PROPERTY))
+            game.setSpriteCache(new SpriteBitmapCache(SPRITE_CACHE_BUDGET));
+        if (Boolean.getBoolean(DIRTY_REGIONS_PROPERTY))
+            game.setDirtyAreaThreshold(DIRTY_AREA_THRESHOLD);
+        //the stress test measures the full resolution, a lower one would hide where the frame rate breaks
+        if (stressScenario == null && Boolean.getBoolean(DYNAMIC_RESOLUTION_PROPERTY))
+            game.setDynamicResolution(new DynamicResolution(1000 / SIMULATION_RATE, MIN_RENDER_SCALE, PROBE_FRAMES));
+        int parallelThreshold = Integer.getInteger(PARALLEL_UPDATE_PROPERTY,
+                stressScenario == null ? 0 : stressScenario.parallelThreshold());
+        if (parallelThreshold > 0)
+            game.getSimulation().setParallelUpdate(ForkJoinPool.commonPool(), parallelThreshold);
         game.setOnEndGameAction(this::onEndGameAction);
+        game.setRecording(System.getProperty(RECORD_PROPERTY) != null);
 
-        //create hud
-        hud = new HUD();
+        //the hud is created for every game, so its images are released between the games
+        isCanvasHud = Boolean.getBoolean(CANVAS_HUD_PROPERTY);
+        if (!isCanvasHud)
+            game.addEventListener(this::updateHud);
 
         //create menu
         menu = new Menu();
         menu.setOnStartAction(this::startGame);
         menu.setOnExitAction(stage::close);
         pane.getChildren().add(menu.getNode());
+
+        //create performance metrics, the overlay is over all nodes
+        performanceStats = new PerformanceStats(frameClock);
+        game.setPerformanceStats(performanceStats);
+        registerMBean(performanceStats);
+
+        performanceOverlay = new PerformanceOverlay(performanceStats);
+        StackPane.setAlignment(performanceOverlay.getNode(), Pos.BOTTOM_LEFT);
+        pane.getChildren().add(performanceOverlay.getNode());
+        scene.addEventFilter(KeyEvent.KEY_PRESSED, keyEvent -> {
+            if (keyEvent.getCode() == OVERLAY_KEY)
+                performanceOverlay.toggle();
+        });
+
+        //the stress test starts when the window is shown, so only the frames of the window are measured
+        if (stressScenario != null) {
+            StressTest stressTest = new StressTest(game, frameClock, stressScenario, STRESS_TARGET_FPS, STRESS_SEED);
+            stressTest.setOnFinishedAction(report -> onStressTestFinished(report, Path.of(stressReportFile)));
+            stage.setOnShown(event -> startStressTest(stressTest));
+        }
+    }
+
+    /**
+     * Register the metrics in the platform MBean server, so they can be watched with JConsole or another JMX client.
+     * If the bean is already registered (by the previous window), it is replaced.
+     */
+    private static void registerMBean(PerformanceStats performanceStats) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(PerformanceStats.OBJECT_NAME);
+            if (server.isRegistered(name))
+                server.unregisterMBean(name);
+            server.registerMBean(performanceStats, name);
+        }
+        catch (JMException exception) {
+            //the game works without the bean
+            System.err.println("Performance MBean is not registered: " + exception.getMessage());
+        }
     }
 
     public Stage getStage() {
@@ -73,29 +232,153 @@ public class GameViewManager {
     public void startGame() {
         pane.getChildren().remove(menu.getNode());
         pane.getChildren().add(game.getNode());
-        pane.getChildren().add(hud.getNode());
+        createHud();
+        if (hud != null)
+            pane.getChildren().add(hud.getNode());
+        performanceOverlay.getNode().toFront();
+        background.start();
+        performanceStats.start();
 
         createControllers();
 
-        game.startGame();
+        Replay replay = loadReplay();
+        if (replay == null)
+            game.startGame();
+        else
+            game.startReplay(replay);
+        if (hud != null) {
+            hud.setNumLives(game.getNumLives());
+            hud.setScore(game.getScore());
+        }
+    }
+
+    /**
+     * Play the stress scenario in the game node instead of the menu, the keyboard controls are not set
+     */
+    private void startStressTest(StressTest stressTest) {
+        pane.getChildren().remove(menu.getNode());
+        pane.getChildren().add(game.getNode());
+        //the node hud is not shown in the stress test, the canvas hud is a part of the measured frames
+        if (isCanvasHud)
+            createHud();
+        performanceOverlay.getNode().toFront();
+        background.start();
+        performanceStats.start();
+        stressTest.start();
+    }
+
+    /**
+     * Print and save the report of the stress test and close the window
+     */
+    private void onStressTestFinished(StressReport report, Path path) {
+        System.out.print(report.format());
+        try {
+            report.write(path);
+        }
+        catch (IOException exception) {
+            System.err.println("Stress report " + path + " is not saved: " + exception.getMessage());
+        }
+        stage.close();
     }
 
     /**
      * A function that is called at the end of the game.
      */
     private void onEndGameAction() {
-        pane.getChildren().remove(hud.getNode());
+        saveReplay();
+        background.stop();
+        performanceStats.stop();
+
+        disposeHud();
         pane.getChildren().remove(game.getNode());
         menu.setLastGameScore(game.getScore());
         pane.getChildren().add(menu.getNode());
+        performanceOverlay.getNode().toFront();
+    }
+
+    /**
+     * Create the hud of the game, either a node or a part of the game canvas (see CANVAS_HUD_PROPERTY)
+     */
+    private void createHud() {
+        if (isCanvasHud) {
+            canvasHud = new CanvasHUD();
+            game.setHud(canvasHud);
+        }
+        else {
+            hud = new HUD();
+        }
+    }
+
+    /**
+     * Remove the hud of the game that has ended and release its images
+     */
+    private void disposeHud() {
+        if (hud != null) {
+            pane.getChildren().remove(hud.getNode());
+            hud.dispose();
+            hud = null;
+        }
+        if (canvasHud != null) {
+            game.setHud(null);
+            canvasHud.dispose();
+            canvasHud = null;
+        }
+    }
+
+    /**
+     * Release the images of the window when it is closed
+     */
+    private void dispose() {
+        disposeHud();
+        menu.dispose();
+        ImageCache.getDefault().release(Resource.LOGO, ICON_SIZE, ICON_SIZE);
+    }
+
+    /**
+     * Load the replay set by REPLAY_PROPERTY, null if it is not set or can't be read
+     */
+    private static Replay loadReplay() {
+        String file = System.getProperty(REPLAY_PROPERTY);
+        if (file == null)
+            return null;
+
+        try {
+            return Replay.read(Path.of(file));
+        }
+        catch (IOException exception) {
+            System.err.println("Replay " + file + " is not loaded: " + exception.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Save the replay of the game that has ended to the directory set by RECORD_PROPERTY
+     */
+    private void saveReplay() {
+        String directory = System.getProperty(RECORD_PROPERTY);
+        Replay replay = game.getReplay();
+        if (directory == null || replay == null)
+            return;
+
+        Path path = Path.of(directory, "replay-" + System.currentTimeMillis() + ".sirp");
+        try {
+            replay.write(path);
+        }
+        catch (IOException exception) {
+            System.err.println("Replay " + path + " is not saved: " + exception.getMessage());
+        }
     }
 
     /**
-     * Update HUD, this function is called every tick
+     * Update HUD, this function is called only after the lives or the score changed
      */
-    private void updateHud() {
-        hud.setNumLives(game.getNumLives());
-        hud.setScore(game.getScore());
+    private void updateHud(GameEvents events) {
+        if (hud == null)
+            return;
+        if (events.contains(GameEvent.LIVES_CHANGED))
+            hud.setNumLives(events.getNumLives());
+        if (events.contains(GameEvent.SCORE_CHANGED))
+            hud.setScore(events.getScore());
     }
 
     /**
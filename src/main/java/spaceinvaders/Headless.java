@@ -0,0 +1,119 @@
+package spaceinvaders;
+
+import spaceinvaders.game.Ship;
+import spaceinvaders.game.Simulation;
+import spaceinvaders.replay.Replay;
+import spaceinvaders.replay.ReplayPlayer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Runs the game simulation without a display as fast as possible and prints the simulation speed.
+ * <p>
+ * The player always shoots and changes the direction of the ship at random every second.
+ * Games are restarted until the given number of ticks is simulated.
+ * Usage:
+ *  Headless [ticks] [tick duration in milliseconds]
+ *  Headless record file [tick duration in milliseconds] - play one game and save its replay
+ *  Headless replay file [repeats] - replay the game the given number of times and check that the result is the same
+ */
+public class Headless {
+    private static final long DEFAULT_TICKS = 1_000_000;
+    private static final double DEFAULT_TICK_TIME = 1000.0 / 60;
+    private static final double DIRECTION_CHANGE_TIME = 1000; //in milliseconds
+    private static final int DEFAULT_REPEATS = 100;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 1 && args[0].equals("record")) {
+            record(Path.of(args[1]), args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_TICK_TIME);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("replay")) {
+            replay(Path.of(args[1]), args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_REPEATS);
+            return;
+        }
+
+        long totalTicks = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_TICKS;
+        double tickTime = args.length > 1 ? Double.parseDouble(args[1]) : DEFAULT_TICK_TIME;
+
+        Random random = new Random();
+        Simulation simulation = new Simulation();
+
+        int games = 0;
+        long bestScore = 0;
+        long start = System.nanoTime();
+
+        long tick = 0;
+        while (tick < totalTicks) {
+            simulation.startGame();
+            simulation.setFireMode(true);
+            games++;
+
+            tick += play(simulation, random, tickTime, totalTicks - tick);
+            bestScore = Math.max(bestScore, simulation.getScore());
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d ticks (%d games) in %.2f s: %.0f ticks per second, best score %d%n",
+                tick, games, seconds, tick / seconds, bestScore);
+    }
+
+    /**
+     * Play the game until it is over or the given number of ticks is simulated
+     * @return number of simulated ticks
+     */
+    private static long play(Simulation simulation, Random random, double tickTime, long maxTicks) {
+        Ship.Direction[] directions = Ship.Direction.values();
+
+        long tick = 0;
+        double timeToDirectionChange = 0;
+        while (!simulation.isGameOver() && tick < maxTicks) {
+            timeToDirectionChange -= tickTime;
+            if (timeToDirectionChange <= 0) {
+                simulation.setPlayerShipDirection(directions[random.nextInt(directions.length)]);
+                timeToDirectionChange = DIRECTION_CHANGE_TIME;
+            }
+
+            simulation.tick(tickTime);
+            tick++;
+        }
+        return tick;
+    }
+
+    private static void record(Path path, double tickTime) throws IOException {
+        Simulation simulation = new Simulation();
+        simulation.setRecording(true);
+        simulation.startGame();
+        simulation.setFireMode(true);
+        play(simulation, new Random(), tickTime, Long.MAX_VALUE);
+
+        Replay replay = simulation.getReplay();
+        replay.write(path);
+        System.out.printf("recorded %d ticks, %d events, score %d, seed %d to %s%n", replay.getNumTicks(),
+                replay.getEvents().size(), simulation.getScore(), replay.getSeed(), path);
+    }
+
+    private static void replay(Path path, int repeats) throws IOException {
+        Replay replay = Replay.read(path);
+        Simulation simulation = new Simulation();
+        ReplayPlayer player = new ReplayPlayer(replay, simulation);
+
+        long ticks = 0;
+        int score = -1;
+        long start = System.nanoTime();
+        for (int i = 0; i < repeats; i++) {
+            player.start();
+            ticks += player.runToEnd();
+            if (score >= 0 && score != simulation.getScore())
+                throw new IllegalStateException("Replay is not deterministic: score " + simulation.getScore()
+                        + " instead of " + score);
+            score = simulation.getScore();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d replays of %d ticks in %.2f s: %.0f ticks per second, score %d%n",
+                repeats, replay.getNumTicks(), seconds, ticks / seconds, score);
+    }
+}
@@ -0,0 +1,161 @@
+package spaceinvaders;
+
+import javafx.scene.image.Image;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Cache of the decoded JavaFX images of the resources.
+ * <p>
+ * Images are keyed by the file of the resource and the requested size, so resources with the same file
+ * (e.g. LOGO and LIVE) share one image. Loading is single-flight: if several threads request an image
+ * that is not loaded yet, one of them decodes it and the others wait for the result.
+ * Every acquire counts a reference, the image is dropped from the cache when the last reference is released.
+ * Views that live as long as a game or a window release their images when they are disposed,
+ * images acquired through Utility.getImage are held for the life of the application.
+ * <p>
+ * An image can be downsampled on load to the largest size it will be drawn at, then only the smaller pixels
+ * are kept in memory. getDecodedBytes reports the memory of all loaded images.
+ * An image that failed to load is not kept, so the next acquire tries again.
+ */
+public class ImageCache {
+    private static final int BYTES_PER_PIXEL = 4;
+    private static final ImageCache DEFAULT_CACHE = new ImageCache();
+
+    /**
+     * @param width maximum width of the image, 0 means the original size (the same for height)
+     */
+    private record Key(String path, int width, int height) {
+    }
+
+    private static final class Entry {
+        private final FutureTask<Image> loader;
+        private int references; //changed only inside the compute functions of the map
+
+        private Entry(Key key) {
+            loader = new FutureTask<>(() -> key.width() == 0 && key.height() == 0
+                    ? new Image("file:" + key.path())
+                    : new Image("file:" + key.path(), key.width(), key.height(), true, true));
+        }
+
+        /**
+         * The image if it is already loaded, null otherwise
+         */
+        private Image getLoaded() {
+            if (!loader.isDone())
+                return null;
+            try {
+                return loader.get();
+            }
+            catch (InterruptedException | ExecutionException exception) {
+                return null;
+            }
+        }
+    }
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Cache that is used by Utility.getImage
+     */
+    public static ImageCache getDefault() {
+        return DEFAULT_CACHE;
+    }
+
+    /**
+     * Get the image of the resource in the original size and add a reference to it
+     */
+    public Image acquire(Resource resource) {
+        return acquire(new Key(resource.getPath(), 0, 0));
+    }
+
+    /**
+     * Get the image of the resource downsampled to fit into maxWidth x maxHeight (the ratio is preserved)
+     * and add a reference to it. Images that are smaller than the size are not scaled up.
+     */
+    public Image acquire(Resource resource, int maxWidth, int maxHeight) {
+        if (maxWidth <= 0 || maxHeight <= 0)
+            throw new IllegalArgumentException("Size must be positive: " + maxWidth + "x" + maxHeight);
+
+        if (fits(resource, maxWidth, maxHeight))
+            return acquire(resource);
+        return acquire(new Key(resource.getPath(), maxWidth, maxHeight));
+    }
+
+    /**
+     * Remove a reference added by acquire(resource), the image is dropped when it has no references
+     */
+    public void release(Resource resource) {
+        release(new Key(resource.getPath(), 0, 0));
+    }
+
+    /**
+     * Remove a reference added by acquire(resource, maxWidth, maxHeight)
+     */
+    public void release(Resource resource, int maxWidth, int maxHeight) {
+        if (fits(resource, maxWidth, maxHeight))
+            release(resource);
+        else
+            release(new Key(resource.getPath(), maxWidth, maxHeight));
+    }
+
+    /**
+     * Number of images in the cache
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Memory of the pixels of all loaded images in bytes
+     */
+    public long getDecodedBytes() {
+        long bytes = 0;
+        for (Entry entry : entries.values()) {
+            Image image = entry.getLoaded();
+            if (image != null)
+                bytes += (long) image.getWidth() * (long) image.getHeight() * BYTES_PER_PIXEL;
+        }
+        return bytes;
+    }
+
+    private static boolean fits(Resource resource, int maxWidth, int maxHeight) {
+        return AssetPack.getImageWidth(resource) <= maxWidth && AssetPack.getImageHeight(resource) <= maxHeight;
+    }
+
+    private Image acquire(Key key) {
+        Entry entry = entries.compute(key, (ignored, existing) -> {
+            Entry result = existing != null ? existing : new Entry(key);
+            result.references++;
+            return result;
+        });
+
+        //only the first call decodes the image, the next ones return immediately
+        entry.loader.run();
+        try {
+            Image image = entry.loader.get();
+            if (image.isError()) {
+                //the reference is not counted and the next request tries again
+                release(key);
+                throw new IllegalStateException("Can't load " + key.path(), image.getException());
+            }
+            return image;
+        }
+        catch (ExecutionException exception) {
+            //the next request tries again
+            entries.remove(key, entry);
+            throw new IllegalStateException("Can't load " + key.path(), exception.getCause());
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading " + key.path(), exception);
+        }
+    }
+
+    private void release(Key key) {
+        entries.computeIfPresent(key, (ignored, entry) -> --entry.references > 0 ? entry : null);
+    }
+}
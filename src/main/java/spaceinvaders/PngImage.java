@@ -0,0 +1,72 @@
+package spaceinvaders;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pixels of a PNG resource decoded without JavaFX (with ImageIO).
+ * <p>
+ * Used where the game needs the size or the pixels of an image but must not depend on the JavaFX toolkit
+ * (the headless simulation, collision masks, build tools).
+ */
+public class PngImage {
+    private static final Map<String, PngImage> CACHE = new ConcurrentHashMap<>(); //by path, resources can share a file
+
+    private final int width;
+    private final int height;
+    private final int[] argb;
+
+    private PngImage(int width, int height, int[] argb) {
+        this.width = width;
+        this.height = height;
+        this.argb = argb;
+    }
+
+    /**
+     * Get the decoded image of the resource, every resource is decoded only once
+     */
+    public static PngImage of(Resource resource) {
+        return CACHE.computeIfAbsent(resource.getPath(), path -> {
+            try (InputStream inputStream = resource.openStream()) {
+                return decode(inputStream);
+            }
+            catch (IOException exception) {
+                throw new UncheckedIOException("Can't decode " + resource, exception);
+            }
+        });
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Pixels in the ARGB format (not premultiplied), row by row.
+     * The array is shared, it must not be changed.
+     */
+    public int[] getPixels() {
+        return argb;
+    }
+
+    /**
+     * Decode a PNG image
+     */
+    public static PngImage decode(InputStream inputStream) throws IOException {
+        BufferedImage image = ImageIO.read(inputStream);
+        if (image == null)
+            throw new IOException("Not a PNG image");
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        return new PngImage(width, height, image.getRGB(0, 0, width, height, null, 0, width));
+    }
+}
@@ -1,5 +1,7 @@
 package spaceinvaders;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Objects;
 
 /**
@@ -31,13 +33,25 @@ public enum Resource {
     METEOR_THREE("meteorBrown_big4.png"),
     LOGO("playerLife.png");
 
+    private final String name;
     private final String path;
 
-    Resource(String path) {
-        this.path = Objects.requireNonNull(Resource.class.getResource(path)).getPath();
+    Resource(String name) {
+        this.name = name;
+        this.path = Objects.requireNonNull(Resource.class.getResource(name)).getPath();
     }
 
     public String getPath() {
         return path;
     }
+
+    /**
+     * Open the resource for reading, unlike getPath this also works if the resource is packed in a jar
+     */
+    public InputStream openStream() throws IOException {
+        InputStream inputStream = Resource.class.getResourceAsStream(name);
+        if (inputStream == null)
+            throw new IOException("Resource not found: " + name);
+        return inputStream;
+    }
 }
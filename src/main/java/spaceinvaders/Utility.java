@@ -2,18 +2,14 @@ package spaceinvaders;
 
 import javafx.scene.image.Image;
 import javafx.scene.text.Font;
-import spaceinvaders.game.Sprite;
+import spaceinvaders.game.EntityStore;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.util.Random;
 
 /**
  * The class with utility functions
  */
 public class Utility {
-    private static final Random RANDOMIZER = new Random();
-
     /**
      * Convert nanosecond to milliseconds
      */
@@ -27,38 +23,32 @@ public class Utility {
     }
 
     /**
-     * Load font of given size
-     * The font is loaded at the path specified in fontResource
+     * Load font of given size from the default font cache
+     * The font is loaded at the path specified in fontResource, the file is parsed only once
      * If the font cannot be loaded, the javafx default is set
      */
     public static Font loadFont(Resource fontResource, int fontSize) {
-        Font toReturn;
-        try {
-            toReturn = Font.loadFont(new FileInputStream(fontResource.getPath()), fontSize);
-        }
-        catch (FileNotFoundException exception) {
-            toReturn = new Font(fontSize);
-        }
-        return toReturn;
+        return FontCache.getDefault().get(fontResource, fontSize);
     }
 
     /**
-     * Set the sprite to a random position above the canvas
+     * Set the entity to a random position above the canvas, the position is taken from the given random stream
      */
-    public static void setPositionAboveCanvas(Sprite sprite) {
+    public static void setPositionAboveCanvas(EntityStore store, int index, Random random) {
         //calculate position
-        double posY = -RANDOMIZER.nextDouble() - sprite.getHeight();
-        double posX = (1 - sprite.getWidth()) * RANDOMIZER.nextDouble();
+        double posY = -random.nextDouble() - store.getHeight(index);
+        double posX = (1 - store.getWidth(index)) * random.nextDouble();
 
         //set position
-        sprite.setPosY(posY);
-        sprite.setPosX(posX);
+        store.setPos(index, posX, posY);
     }
 
     /**
-     * Load the image
+     * Get the image from the default image cache for the life of the application, the reference is never released.
+     * The image is loaded on the first request and the next requests return the same image.
+     * Can be called from any thread.
      */
     public static Image getImage(Resource resource) {
-        return new Image("file:" + resource.getPath());
+        return ImageCache.getDefault().acquire(resource);
     }
 }
@@ -1,13 +1,13 @@
 package spaceinvaders.background;
 
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
 import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
-import javafx.scene.layout.GridPane;
-import javafx.scene.layout.Pane;
-import javafx.util.Duration;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import spaceinvaders.FrameClock;
 import spaceinvaders.NodeManager;
 import spaceinvaders.Resource;
 import spaceinvaders.Utility;
@@ -17,67 +17,161 @@ import spaceinvaders.Utility;
  * Background node.
  * The background is a moving space.
  * </p>
- * Made with a grid filled with identical images of space
- * This grid moves down at a certain speed.
- * When it is moved down by the image size, it is shifted up by the image size.
- * Thus, the movement looks seamless.
+ * Made with one canvas on which one or more layers are drawn every frame of the frame clock, the first layer is
+ * at the bottom. Every layer is a tiled image scrolling down at its own speed (parallax).
+ * The tiles of a layer are copied once into a strip that is higher than the canvas by one tile,
+ * so every frame a layer is one drawImage of a part of the strip, shifted by the scroll offset.
+ * When the offset reaches the tile height, it wraps to zero. Thus, the movement looks seamless.
+ * <p>
+ * The layers scroll only between start and stop, otherwise the canvas keeps its last frame
+ * and the background costs nothing (e.g. under the static menu).
  */
 public class SpaceBackground implements NodeManager {
     //constants
-    private static final double BACKGROUND_SPEED = 0.07;
-    private static final double FRAME_TIME = 0.02;
+    private static final double BACKGROUND_SPEED = 0.07; //part of the height per second
+    private static final double STARS_SPEED = 0.14; //the near stars move faster than the space
+    private static final int STARS_THRESHOLD = 24; //how much brighter than the average a pixel of a star is
     private static final Image BACKGROUND_IMAGE = Utility.getImage(Resource.SPACE_BACKGROUND);
 
-    private final Pane outerPane;
+    /**
+     * Layer of the background
+     * @param image tile of the layer
+     * @param speed part of the height of the background per second
+     */
+    public record Layer(Image image, double speed) {
+    }
+
+    private final Canvas canvas;
+    private final FrameClock frameClock;
+    private final FrameClock.FrameListener frameListener = this::frame;
+    private boolean isRunning;
+
+    private final WritableImage[] strips;
+    private final double[] speeds;
+    private final double[] tileHeights;
+    private final double[] offsets;
+
+    /**
+     * Background of the space image and its stars moving faster
+     */
+    public SpaceBackground(double width, double height, FrameClock frameClock) {
+        this(width, height, frameClock,
+                new Layer(BACKGROUND_IMAGE, BACKGROUND_SPEED),
+                new Layer(createStarsImage(BACKGROUND_IMAGE), STARS_SPEED));
+    }
 
-    public SpaceBackground(double width, double height) {
-        outerPane = new Pane();
+    public SpaceBackground(double width, double height, FrameClock frameClock, Layer... layers) {
+        canvas = new Canvas(width, height);
+        this.frameClock = frameClock;
 
-        double speed = height * BACKGROUND_SPEED;
-        GridPane movingPane = createMovingPane(width, height, speed);
+        strips = new WritableImage[layers.length];
+        speeds = new double[layers.length];
+        tileHeights = new double[layers.length];
+        offsets = new double[layers.length];
+        for (int i = 0; i < layers.length; i++) {
+            strips[i] = createStrip(layers[i].image(), (int) Math.ceil(width), (int) Math.ceil(height));
+            speeds[i] = layers[i].speed() * height;
+            tileHeights[i] = layers[i].image().getHeight();
+        }
+
+        draw();
+    }
+
+    /**
+     * Scroll the layers every frame of the frame clock
+     */
+    public void start() {
+        if (isRunning)
+            return;
+        isRunning = true;
+        frameClock.addListener(frameListener);
+    }
 
-        outerPane.getChildren().add(movingPane);
+    /**
+     * Stop scrolling, the last frame stays on the canvas
+     */
+    public void stop() {
+        if (!isRunning)
+            return;
+        isRunning = false;
+        frameClock.removeListener(frameListener);
     }
 
     @Override
     public Node getNode() {
-        return outerPane;
+        return canvas;
     }
 
-    private GridPane createMovingPane(double outerWidth, double outerHeight, double speed) {
-        GridPane movingPane = new GridPane();
+    /**
+     * Scroll the layers by the frame duration and draw them
+     */
+    private void frame(double deltaTime) {
+        for (int i = 0; i < offsets.length; i++)
+            offsets[i] = (offsets[i] + speeds[i] * deltaTime / 1000) % tileHeights[i];
+        draw();
+    }
+
+    private void draw() {
+        GraphicsContext graphicsContext = canvas.getGraphicsContext2D();
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+
+        //the first layer is opaque and covers the previous frame
+        for (int i = 0; i < strips.length; i++) {
+            graphicsContext.drawImage(strips[i], 0, tileHeights[i] - offsets[i], width, height,
+                    0, 0, width, height);
+        }
+    }
 
-        double imageHeight = BACKGROUND_IMAGE.getHeight();
-        double imageWidth = BACKGROUND_IMAGE.getWidth();
-        double backgroundHeight = outerHeight + imageHeight;
-        int columns = (int) Math.ceil(outerWidth / imageWidth);
-        int rows = (int) Math.ceil(backgroundHeight / imageHeight);
+    /**
+     * Fill an image of the given width and the height plus one tile with the tiles
+     */
+    private static WritableImage createStrip(Image tile, int width, int height) {
+        int tileWidth = (int) tile.getWidth();
+        int tileHeight = (int) tile.getHeight();
+        int stripHeight = height + tileHeight;
 
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                ImageView imageView = new ImageView(BACKGROUND_IMAGE);
-                movingPane.add(imageView, j, i);
+        WritableImage strip = new WritableImage(width, stripHeight);
+        PixelReader pixelReader = tile.getPixelReader();
+        PixelWriter pixelWriter = strip.getPixelWriter();
+        for (int y = 0; y < stripHeight; y += tileHeight) {
+            for (int x = 0; x < width; x += tileWidth) {
+                pixelWriter.setPixels(x, y, Math.min(tileWidth, width - x), Math.min(tileHeight, stripHeight - y),
+                        pixelReader, 0, 0);
             }
         }
+        return strip;
+    }
 
-        movingPane.setLayoutY(-imageHeight);
+    /**
+     * Image with only the stars of the space image (pixels much brighter than the average), mirrored,
+     * so the stars of two layers don't coincide
+     */
+    private static Image createStarsImage(Image space) {
+        int width = (int) space.getWidth();
+        int height = (int) space.getHeight();
+        PixelReader pixelReader = space.getPixelReader();
 
-        addMovingAnimation(movingPane, speed);
+        long totalBrightness = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++)
+                totalBrightness += brightness(pixelReader.getArgb(x, y));
+        }
+        long averageBrightness = totalBrightness / ((long) width * height);
 
-        return movingPane;
+        WritableImage stars = new WritableImage(width, height);
+        PixelWriter pixelWriter = stars.getPixelWriter();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int argb = pixelReader.getArgb(x, y);
+                if (brightness(argb) > averageBrightness + STARS_THRESHOLD)
+                    pixelWriter.setArgb(width - 1 - x, y, argb);
+            }
+        }
+        return stars;
     }
 
-    private void addMovingAnimation(GridPane movingPane, double speed) {
-        Timeline movingTimeline = new Timeline();
-        movingTimeline.setCycleCount(Timeline.INDEFINITE);
-        KeyFrame keyFrame = new KeyFrame(Duration.seconds(FRAME_TIME), actionEvent -> {
-            double newY = movingPane.getLayoutY() + FRAME_TIME * speed;
-            while (newY >= 0) {
-                newY -= BACKGROUND_IMAGE.getHeight();
-            }
-            movingPane.setLayoutY(newY);
-        });
-        movingTimeline.getKeyFrames().add(keyFrame);
-        movingTimeline.play();
+    private static int brightness(int argb) {
+        return ((argb >> 16 & 0xFF) + (argb >> 8 & 0xFF) + (argb & 0xFF)) / 3;
     }
 }
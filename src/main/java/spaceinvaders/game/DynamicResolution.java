@@ -0,0 +1,126 @@
+package spaceinvaders.game;
+
+/**
+ * Render scale that holds the frame time within a budget.
+ * <p>
+ * The game canvas is rendered at scale * the full resolution and stretched to its size on the screen.
+ * The frame time is averaged over the last frames, when the average exceeds the budget (with a tolerance)
+ * the scale is lowered in proportion to the excess (the cost of a frame is about the number of pixels).
+ * <p>
+ * With vsync the frame time can't go below the refresh interval, so the headroom is not visible in the frame time.
+ * Instead, after the frame time stayed within the budget for probeFrames, the scale is raised by one step.
+ * If the raised scale exceeds the budget again, the scale is lowered back and the wait for the next probe is doubled,
+ * so the scale doesn't oscillate around the limit of the machine.
+ */
+public class DynamicResolution {
+    private static final double AVERAGE_WEIGHT = 0.1; //weight of the last frame in the average frame time
+    private static final double BUDGET_TOLERANCE = 1.2; //frames up to this part of the budget are within it
+    private static final double MAX_DOWN_STEP = 0.75; //the scale is lowered at most to this part at once
+    private static final double MIN_DOWN_STEP = 0.95; //and at least to this part
+    private static final double UP_STEP = 1.1;
+    private static final int SETTLE_FRAMES = 10; //frames after a change before the average is used again
+    private static final int MAX_PROBE_BACKOFF = 16; //the wait for a probe is at most this many times probeFrames
+
+    private final double frameBudget; //in milliseconds
+    private final double minScale;
+    private final int probeFrames;
+
+    private double scale = 1;
+    private double averageFrameTime;
+    private int framesSinceChange;
+    private int framesWithinBudget;
+    private int probeBackoff = 1;
+    private boolean isProbing; //the last change raised the scale
+
+    /**
+     * @param frameBudget target duration of a frame in milliseconds
+     * @param minScale the lowest render scale, from 0 to 1
+     * @param probeFrames number of frames within the budget before the scale is raised
+     */
+    public DynamicResolution(double frameBudget, double minScale, int probeFrames) {
+        if (frameBudget <= 0)
+            throw new IllegalArgumentException("Frame budget must be positive: " + frameBudget);
+        if (minScale <= 0 || minScale > 1)
+            throw new IllegalArgumentException("Min scale must be from 0 to 1: " + minScale);
+        if (probeFrames < 1)
+            throw new IllegalArgumentException("Probe frames must be positive: " + probeFrames);
+
+        this.frameBudget = frameBudget;
+        this.minScale = minScale;
+        this.probeFrames = probeFrames;
+        reset();
+    }
+
+    /**
+     * Start from the full resolution, as if no frames were measured
+     */
+    public void reset() {
+        scale = 1;
+        averageFrameTime = frameBudget;
+        framesSinceChange = 0;
+        framesWithinBudget = 0;
+        probeBackoff = 1;
+        isProbing = false;
+    }
+
+    /**
+     * Add the duration of the last frame
+     * @param frameTime duration of the frame in milliseconds
+     * @return render scale of the next frame
+     */
+    public double update(double frameTime) {
+        averageFrameTime += (frameTime - averageFrameTime) * AVERAGE_WEIGHT;
+        framesSinceChange++;
+        if (framesSinceChange < SETTLE_FRAMES)
+            return scale;
+
+        //the raised scale held for a whole probe
+        if (isProbing && framesSinceChange >= probeFrames)
+            isProbing = false;
+
+        if (averageFrameTime > frameBudget * BUDGET_TOLERANCE) {
+            framesWithinBudget = 0;
+            if (isProbing) {
+                //the probe failed, go back to the last scale within the budget and wait longer for the next probe
+                probeBackoff = Math.min(2 * probeBackoff, MAX_PROBE_BACKOFF);
+                setScale(scale / UP_STEP, false);
+            }
+            else if (scale > minScale) {
+                double step = Math.sqrt(frameBudget / averageFrameTime);
+                setScale(scale * Math.max(MAX_DOWN_STEP, Math.min(MIN_DOWN_STEP, step)), false);
+            }
+        }
+        else if (++framesWithinBudget >= probeFrames * probeBackoff) {
+            framesWithinBudget = 0;
+            if (scale < 1)
+                setScale(scale * UP_STEP, true);
+            else
+                probeBackoff = 1;
+        }
+
+        return scale;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    public double getFrameBudget() {
+        return frameBudget;
+    }
+
+    /**
+     * Average frame time in milliseconds
+     */
+    public double getAverageFrameTime() {
+        return averageFrameTime;
+    }
+
+    private void setScale(double scale, boolean isProbing) {
+        this.scale = Math.max(minScale, Math.min(1, scale));
+        this.isProbing = isProbing;
+        framesSinceChange = 0;
+        //the frames of the old scale don't tell anything about the new one
+        averageFrameTime = Math.min(averageFrameTime, frameBudget);
+    }
+}
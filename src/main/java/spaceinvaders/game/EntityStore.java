@@ -0,0 +1,335 @@
+package spaceinvaders.game;
+
+import java.util.Arrays;
+
+/**
+ * Storage of many entities of the same kind (meteors, projectiles, power-ups) in the structure-of-arrays form.
+ * <p>
+ * Every field of an entity is kept in its own primitive array and an entity is just an index in these arrays.
+ * Entities are stored densely in the range [0, size). Removal moves the last entity into the freed index (swap-remove),
+ * so it is O(1), but the index of an entity may change after any removal.
+ * Code that needs a stable reference to an entity uses a handle (getHandle), which stays valid until the entity is removed.
+ * <p>
+ * All parameters are calculated as if the canvas was 1 by 1 and scaled to the actual canvas size when drawn.
+ * The position before the last tick is kept for interpolation (savePreviousPositions).
+ * Only update moves an entity from its previous position, the position setters place the entity, so it is not interpolated.
+ * The type of an entity is an id whose meaning is defined by the owner of the store (for example, the meteor image index).
+ */
+public class EntityStore {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * A handle consists of a slot in the slotToIndex table and the generation of this slot.
+     * The generation is increased every time the slot is released, so the old handles become invalid.
+     * A slot whose generation wraps around GENERATION_MASK is retired (never reused),
+     * otherwise a handle from GENERATION_MASK + 1 releases ago would be valid again.
+     */
+    private static final int SLOT_BITS = 24;
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    private static final int GENERATION_MASK = 0x7F;
+
+    //entity fields, index is the entity
+    private double[] posX;
+    private double[] posY;
+    private double[] prevPosX;
+    private double[] prevPosY;
+    private double[] speedX;
+    private double[] speedY;
+    private double[] width;
+    private double[] height;
+    private double[] rotation;
+    private int[] type;
+    private int[] indexToSlot;
+
+    //handle slots, index is the slot
+    private int[] slotToIndex;
+    private int[] slotGeneration;
+    private int[] freeSlots;
+    private int numFreeSlots;
+    private int numSlots;
+
+    private int size;
+
+    public EntityStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public EntityStore(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+
+        posX = new double[capacity];
+        posY = new double[capacity];
+        prevPosX = new double[capacity];
+        prevPosY = new double[capacity];
+        speedX = new double[capacity];
+        speedY = new double[capacity];
+        width = new double[capacity];
+        height = new double[capacity];
+        rotation = new double[capacity];
+        type = new int[capacity];
+        indexToSlot = new int[capacity];
+
+        slotToIndex = new int[capacity];
+        slotGeneration = new int[capacity];
+        freeSlots = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Add an entity of the given type with all other fields set to zero
+     * @return index of the new entity, it is always the last index (size() - 1)
+     */
+    public int add(int entityType) {
+        if (size == posX.length)
+            grow();
+
+        int index = size++;
+        posX[index] = 0;
+        posY[index] = 0;
+        prevPosX[index] = 0;
+        prevPosY[index] = 0;
+        speedX[index] = 0;
+        speedY[index] = 0;
+        width[index] = 0;
+        height[index] = 0;
+        rotation[index] = 0;
+        type[index] = entityType;
+
+        int slot = numFreeSlots > 0 ? freeSlots[--numFreeSlots] : newSlot();
+        slotToIndex[slot] = index;
+        indexToSlot[index] = slot;
+
+        return index;
+    }
+
+    /**
+     * Remove the entity at the given index.
+     * The last entity is moved to this index, so indices greater or equal to the given one must be revisited.
+     */
+    public void remove(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(index);
+
+        //release the handle of the removed entity
+        releaseSlot(indexToSlot[index]);
+
+        //move the last entity to the freed index
+        int last = --size;
+        if (index != last) {
+            posX[index] = posX[last];
+            posY[index] = posY[last];
+            prevPosX[index] = prevPosX[last];
+            prevPosY[index] = prevPosY[last];
+            speedX[index] = speedX[last];
+            speedY[index] = speedY[last];
+            width[index] = width[last];
+            height[index] = height[last];
+            rotation[index] = rotation[last];
+            type[index] = type[last];
+
+            int movedSlot = indexToSlot[last];
+            indexToSlot[index] = movedSlot;
+            slotToIndex[movedSlot] = index;
+        }
+    }
+
+    /**
+     * Remove all entities, all handles become invalid
+     */
+    public void clear() {
+        for (int index = 0; index < size; index++)
+            releaseSlot(indexToSlot[index]);
+        size = 0;
+    }
+
+    /**
+     * Invalidate the handles of the slot and put it into the free slots, unless its generation has wrapped
+     */
+    private void releaseSlot(int slot) {
+        slotGeneration[slot] = (slotGeneration[slot] + 1) & GENERATION_MASK;
+        slotToIndex[slot] = -1;
+        if (slotGeneration[slot] != 0)
+            freeSlots[numFreeSlots++] = slot;
+    }
+
+    /**
+     * Create a slot, the slot table grows separately from the entities, because retired slots are not reused
+     */
+    private int newSlot() {
+        if (numSlots > SLOT_MASK)
+            throw new IllegalStateException("No free handle slots");
+        if (numSlots == slotToIndex.length) {
+            int capacity = slotToIndex.length * 2;
+            slotToIndex = Arrays.copyOf(slotToIndex, capacity);
+            slotGeneration = Arrays.copyOf(slotGeneration, capacity);
+            freeSlots = Arrays.copyOf(freeSlots, capacity);
+        }
+        return numSlots++;
+    }
+
+    /**
+     * Get a stable handle of the entity at the given index
+     */
+    public int getHandle(int index) {
+        int slot = indexToSlot[index];
+        return (slotGeneration[slot] << SLOT_BITS) | slot;
+    }
+
+    /**
+     * Get the current index of the entity with the given handle
+     * @return index of the entity or -1 if the entity was removed
+     */
+    public int indexOf(int handle) {
+        int slot = handle & SLOT_MASK;
+        if (slot >= numSlots || slotGeneration[slot] != (handle >>> SLOT_BITS))
+            return -1;
+        return slotToIndex[slot];
+    }
+
+    public boolean isAlive(int handle) {
+        return indexOf(handle) != -1;
+    }
+
+    /**
+     * Move all entities according to their speed
+     */
+    public void update(double deltaTime) {
+        update(deltaTime, 0, size);
+    }
+
+    /**
+     * Move the entities with indices from (inclusive) to (exclusive) according to their speed.
+     * Different ranges can be updated by different threads at the same time.
+     */
+    public void update(double deltaTime, int from, int to) {
+        for (int index = from; index < to; index++) {
+            posX[index] += speedX[index] * deltaTime;
+            posY[index] += speedY[index] * deltaTime;
+        }
+    }
+
+    /**
+     * Remember the current positions as the previous ones, called before every tick
+     */
+    public void savePreviousPositions() {
+        System.arraycopy(posX, 0, prevPosX, 0, size);
+        System.arraycopy(posY, 0, prevPosY, 0, size);
+    }
+
+    /**
+     * Get the x position interpolated between the previous and the current tick
+     * @param alpha part of the way from the previous position, from 0 to 1
+     */
+    public double getInterpolatedPosX(int index, double alpha) {
+        return prevPosX[index] + (posX[index] - prevPosX[index]) * alpha;
+    }
+
+    /**
+     * Get the y position interpolated between the previous and the current tick
+     * @param alpha part of the way from the previous position, from 0 to 1
+     */
+    public double getInterpolatedPosY(int index, double alpha) {
+        return prevPosY[index] + (posY[index] - prevPosY[index]) * alpha;
+    }
+
+    /**
+     * Checks if the entity collides with the entity of another (or the same) store
+     * For collision detection, rectangular collision detection is used (rotation is ignored, see Narrowphase)
+     */
+    public boolean checkCollision(int index, EntityStore another, int anotherIndex) {
+        return intersects(index, another.posX[anotherIndex], another.posY[anotherIndex],
+                another.width[anotherIndex], another.height[anotherIndex]);
+    }
+
+    private boolean intersects(int index, double x, double y, double w, double h) {
+        return x + w > posX[index] && y + h > posY[index]
+                && x < posX[index] + width[index] && y < posY[index] + height[index];
+    }
+
+    private void grow() {
+        int capacity = posX.length * 2;
+
+        posX = Arrays.copyOf(posX, capacity);
+        posY = Arrays.copyOf(posY, capacity);
+        prevPosX = Arrays.copyOf(prevPosX, capacity);
+        prevPosY = Arrays.copyOf(prevPosY, capacity);
+        speedX = Arrays.copyOf(speedX, capacity);
+        speedY = Arrays.copyOf(speedY, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        rotation = Arrays.copyOf(rotation, capacity);
+        type = Arrays.copyOf(type, capacity);
+        indexToSlot = Arrays.copyOf(indexToSlot, capacity);
+    }
+
+    public double getPosX(int index) {
+        return posX[index];
+    }
+
+    public double getPosY(int index) {
+        return posY[index];
+    }
+
+    public double getSpeedX(int index) {
+        return speedX[index];
+    }
+
+    public double getSpeedY(int index) {
+        return speedY[index];
+    }
+
+    public double getWidth(int index) {
+        return width[index];
+    }
+
+    public double getHeight(int index) {
+        return height[index];
+    }
+
+    public double getRotationAngle(int index) {
+        return rotation[index];
+    }
+
+    public int getType(int index) {
+        return type[index];
+    }
+
+    public void setPosX(int index, double value) {
+        posX[index] = value;
+        prevPosX[index] = value;
+    }
+
+    public void setPosY(int index, double value) {
+        posY[index] = value;
+        prevPosY[index] = value;
+    }
+
+    public void setPos(int index, double x, double y) {
+        setPosX(index, x);
+        setPosY(index, y);
+    }
+
+    public void setSpeedX(int index, double value) {
+        speedX[index] = value;
+    }
+
+    public void setSpeedY(int index, double value) {
+        speedY[index] = value;
+    }
+
+    public void setSize(int index, double w, double h) {
+        width[index] = w;
+        height[index] = h;
+    }
+
+    public void setRotationAngle(int index, double value) {
+        rotation[index] = value;
+    }
+}
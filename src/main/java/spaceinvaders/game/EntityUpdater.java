@@ -0,0 +1,180 @@
+package spaceinvaders.game;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Moves the entities of a store and finds the entities that crossed a bound of the canvas.
+ * <p>
+ * If the store has at least threshold entities, the index range is split into partitions that are updated
+ * by the fork-join pool. Every partition writes the crossed indices of its range into its own part of one buffer,
+ * then the parts are merged in the order of the partitions, so the crossed indices are always in ascending order.
+ * The caller applies the decisions (respawn, removal) on one thread in this order, so the result is bit for bit
+ * the same as the result of the sequential update, regardless of the number of threads.
+ * Smaller stores are updated on the calling thread.
+ */
+public class EntityUpdater {
+    private static final int PARTITIONS_PER_THREAD = 4; //more partitions than threads to balance the load
+    private static final int MIN_PARTITION_SIZE = 4096;
+
+    /**
+     * Bound of the canvas which the entities leave
+     */
+    public enum Bound {
+        BELOW_CANVAS, //the top of the entity is below the canvas (meteors, power-ups)
+        ABOVE_CANVAS //the bottom of the entity is above the canvas (projectiles)
+    }
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    private final Partition[] partitions;
+    private final RecursiveAction root;
+
+    private int[] crossed = new int[0];
+    private boolean[] isCrossed = new boolean[0];
+
+    //arguments of the current update, read by the partitions
+    private EntityStore store;
+    private double deltaTime;
+    private Bound bound;
+    private int numPartitions;
+
+    /**
+     * Updater without threads
+     */
+    public EntityUpdater() {
+        this(null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param pool pool of the parallel update, null means that all stores are updated on the calling thread
+     * @param threshold minimum number of entities that are updated in parallel
+     */
+    public EntityUpdater(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+
+        int maxPartitions = pool == null ? 1 : pool.getParallelism() * PARTITIONS_PER_THREAD;
+        partitions = new Partition[maxPartitions];
+        for (int i = 0; i < maxPartitions; i++)
+            partitions[i] = new Partition();
+
+        root = new RecursiveAction() {
+            @Override
+            protected void compute() {
+                for (int i = numPartitions - 1; i > 0; i--)
+                    partitions[i].fork();
+                partitions[0].compute();
+                for (int i = 1; i < numPartitions; i++)
+                    partitions[i].join();
+            }
+        };
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Move all entities of the store and find the entities that crossed the bound
+     * @return number of the crossed entities, their indices are getCrossed(0) ... getCrossed(count - 1)
+     */
+    public int update(EntityStore store, double deltaTime, Bound bound) {
+        int size = store.size();
+        if (crossed.length < size) {
+            crossed = new int[Math.max(size, crossed.length * 2)];
+            isCrossed = new boolean[crossed.length];
+        }
+
+        this.store = store;
+        this.deltaTime = deltaTime;
+        this.bound = bound;
+
+        if (pool == null || size < threshold) {
+            numPartitions = 1;
+            partitions[0].setRange(0, size);
+            partitions[0].compute();
+        }
+        else {
+            numPartitions = Math.max(1, Math.min(partitions.length, size / MIN_PARTITION_SIZE));
+            for (int i = 0; i < numPartitions; i++) {
+                partitions[i].reinitialize();
+                partitions[i].setRange((int) ((long) size * i / numPartitions),
+                        (int) ((long) size * (i + 1) / numPartitions));
+            }
+            root.reinitialize();
+            pool.invoke(root);
+        }
+        this.store = null;
+
+        //merge the crossed indices of the partitions in the order of the partitions
+        int count = 0;
+        for (int i = 0; i < numPartitions; i++) {
+            Partition partition = partitions[i];
+            System.arraycopy(crossed, partition.from, crossed, count, partition.count);
+            count += partition.count;
+        }
+        return count;
+    }
+
+    /**
+     * Index of a crossed entity found by the last update, in ascending order
+     */
+    public int getCrossed(int i) {
+        return crossed[i];
+    }
+
+    /**
+     * Remove the crossed entities found by the last update of the store.
+     * Entities are removed in the same order as a removal during a scan from the first index would remove them:
+     * the last entity is moved to the removed index and checked again.
+     */
+    public void removeCrossed(EntityStore store, int count) {
+        for (int i = 0; i < count; i++) {
+            int index = crossed[i];
+            //the removed entity is replaced by the last one, which can be crossed too
+            while (index < store.size() && isCrossed[index]) {
+                int last = store.size() - 1;
+                store.remove(index);
+                isCrossed[index] = isCrossed[last];
+                isCrossed[last] = false;
+            }
+        }
+    }
+
+    /**
+     * Range of the indices updated by one task
+     */
+    private final class Partition extends RecursiveAction {
+        private int from;
+        private int to;
+        private int count;
+
+        void setRange(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            EntityStore store = EntityUpdater.this.store;
+            store.update(deltaTime, from, to);
+
+            count = 0;
+            for (int index = from; index < to; index++) {
+                boolean hasCrossed = switch (bound) {
+                    case BELOW_CANVAS -> store.getPosY(index) > 1;
+                    case ABOVE_CANVAS -> store.getPosY(index) < -store.getHeight(index);
+                };
+                isCrossed[index] = hasCrossed;
+                if (hasCrossed)
+                    crossed[from + count++] = index;
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package spaceinvaders.game;
+
+/**
+ * Fixed timestep of the simulation.
+ * <p>
+ * The time of the rendered frames is accumulated, and the simulation is advanced by whole ticks of the same duration,
+ * so the result of the simulation does not depend on the frame rate.
+ * If a frame took too long (for example, after a stall), only maxTicksPerFrame ticks are run
+ * and the rest of the time is dropped, so the game slows down instead of freezing while catching up.
+ * <p>
+ * The time left in the accumulator is used to interpolate sprites between the previous and the current tick (getAlpha).
+ */
+public class FixedTimestep {
+    private static final double MILLISECONDS_IN_SECOND = 1000;
+
+    private final double tickTime; //in milliseconds
+    private final int maxTicksPerFrame;
+
+    private double accumulator;
+
+    /**
+     * @param tickRate number of simulation ticks per second
+     * @param maxTicksPerFrame maximum number of ticks to catch up in one frame
+     */
+    public FixedTimestep(double tickRate, int maxTicksPerFrame) {
+        if (tickRate <= 0)
+            throw new IllegalArgumentException("Tick rate must be positive: " + tickRate);
+        if (maxTicksPerFrame < 1)
+            throw new IllegalArgumentException("Max ticks per frame must be positive: " + maxTicksPerFrame);
+
+        this.tickTime = MILLISECONDS_IN_SECOND / tickRate;
+        this.maxTicksPerFrame = maxTicksPerFrame;
+    }
+
+    /**
+     * Add the duration of the frame to the accumulator
+     * @param frameTime duration of the frame in milliseconds
+     * @return number of ticks to run in this frame
+     */
+    public int advance(double frameTime) {
+        accumulator += frameTime;
+
+        int ticks = (int) (accumulator / tickTime);
+        if (ticks > maxTicksPerFrame) {
+            //drop the time that can't be caught up
+            ticks = maxTicksPerFrame;
+            accumulator = 0;
+        }
+        else {
+            accumulator -= ticks * tickTime;
+        }
+
+        return ticks;
+    }
+
+    /**
+     * Part of the next tick that has already passed, from 0 to 1.
+     * Sprites are drawn at this part of the way between the previous and the current tick.
+     */
+    public double getAlpha() {
+        return Math.min(1, accumulator / tickTime);
+    }
+
+    /**
+     * Duration of one tick in milliseconds
+     */
+    public double getTickTime() {
+        return tickTime;
+    }
+
+    public int getMaxTicksPerFrame() {
+        return maxTicksPerFrame;
+    }
+
+    public void reset() {
+        accumulator = 0;
+    }
+}
@@ -1,69 +1,100 @@
 package spaceinvaders.game;
 
-import javafx.animation.Animation;
-import javafx.animation.AnimationTimer;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import javafx.scene.Group;
 import javafx.scene.Node;
+import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.util.Duration;
+import javafx.scene.transform.Scale;
 import spaceinvaders.*;
+import spaceinvaders.game.render.ImageRegion;
+import spaceinvaders.game.render.RenderBatch;
+import spaceinvaders.game.render.SpriteAtlas;
+import spaceinvaders.game.render.SpriteBitmapCache;
+import spaceinvaders.hud.CanvasHUD;
+import spaceinvaders.replay.Replay;
+import spaceinvaders.replay.ReplayPlayer;
+import spaceinvaders.stats.PerformanceStats;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 /**
- * Class responsible for all game logic.
+ * Class responsible for running the game on the JavaFX thread and drawing it.
  * <p>
  * General logic:
  *  1) There is a canvas (gameCanvas) on which the whole game is drawn
- *  2) Timer (gameTimer), on each operation of which the tick function is called
- *  3) The tick function represents one frame, it moves all sprites, handling collisions and drawing sprites on the canvas
+ *  2) Frame clock (frameClock), on each frame of which the frame function is called while the game runs
+ *  3) The frame function advances the simulation by one or more ticks (see FixedTimestep)
+ *     and then draws sprites on the canvas (see RenderBatch)
+ * <p>
+ * All game logic (movement, collisions, shooting, levels) is in Simulation, which doesn't depend on JavaFX.
+ * <p>
+ * The canvas can be smaller than the game (render scale), then it is stretched to the game size (see DynamicResolution).
  */
 public class Game implements NodeManager {
-    private static final int NUM_METEORS = 20;
-    private static final int NUM_LIVES = 3;
-    private static final int SCORE_UP_BONUS = 50;
-    private static final double SHOT_DELAY = 0.2; //in seconds
-    private static final double LEVEL_DURATION = 10; //in seconds
-    private static final double MULTIPLIER_BY_LEVEL = 1.1; //how many times the speed increases per level
-
     private final Canvas gameCanvas; //canvas on which the whole game is drawn
+    private final Group gameNode; //the canvas stretched to the game size
+    private final Scale canvasScale = new Scale();
+    private final double width;
+    private final double height;
+
+    /**
+     * If set, the render scale is changed to hold the frame time within the budget
+     */
+    private DynamicResolution dynamicResolution;
+    private double renderScale = 1; //size of the canvas relative to the game size
+
+    //draw order of the sprites, sprites of a higher layer are drawn over the lower ones
+    private static final int SHIP_LAYER = 0;
+    private static final int METEOR_LAYER = 1;
+    private static final int PROJECTILE_LAYER = 2;
+    private static final int POWER_UP_LAYER = 3;
+    private static final int HUD_LAYER = 4;
+
+    /**
+     * Sprites of a frame are culled, grouped by image and drawn together
+     */
+    private final RenderBatch renderBatch;
+
+    /**
+     * Images of the sprites, all sprites are regions of one atlas image if the asset pack was built
+     */
+    private final SpriteAtlas spriteAtlas = SpriteAtlas.getDefault();
 
     /**
-     * Main game loop
+     * Main game loop, the clock is shared with the other animations (the background)
      */
-    private final AnimationTimer gameTimer;
-    private long lastFrameTime = 0;
+    private final FrameClock frameClock;
+    private final FrameClock.FrameListener frameListener = this::onFrame;
+    private boolean isFirstFrame;
 
     /**
-     * Every LEVEL_DURATION seconds the difficulty level of the game increases.
-     * The speed of meteorites increases and one power-up is created (the levelUp function).
-     * LevelUpTimeLine is responsible for this.
+     * If set, the simulation is advanced by ticks of the same duration and sprites are interpolated between ticks,
+     * otherwise every frame is one tick of the frame duration.
      */
-    private final Timeline levelUpTimeLine;
+    private FixedTimestep fixedTimestep;
+
+    private final Simulation simulation;
 
     /**
-     * If the weapon is active (setFireMode), the timer is responsible for the delay (SHOT_DELAY) between shots.
+     * If set, the time of the simulation ticks is measured
      */
-    private final Timeline shotTimeLine;
+    private PerformanceStats performanceStats;
 
-    //sprites and sprites generators
-    private Ship playerShip;
-    private List<Sprite> meteors;
-    private List<Sprite> projectiles;
-    private List<PowerUp> powerUps;
-    private Weapon weapon;
+    /**
+     * How many times the game runs faster than real time (fast-forward), 1 is the normal speed
+     */
+    private double timeScale = 1;
 
-    private int score;
-    private int numLives;
+    /**
+     * If set, the lives and the score are drawn over the sprites on every frame
+     */
+    private CanvasHUD hud;
 
     /**
-     * An external function that is called every tick. (used to update the state of the HUD)
+     * External functions that are called after a frame in which the game state changed (used to update the HUD)
      */
-    private Runnable onTickAction;
+    private final List<GameEventListener> eventListeners = new ArrayList<>();
 
     /**
      * An external function that is called when the game ends. (used to close the game and exit to the menu)
@@ -72,105 +103,104 @@ public class Game implements NodeManager {
 
     private boolean isGameStarted = false; //current state of the game
 
+    /**
+     * If set, the game is a replay and the inputs of the player are ignored
+     */
+    private ReplayPlayer replayPlayer;
+
     @Override
     public Node getNode() {
-        return gameCanvas;
+        return gameNode;
     }
 
     public Game(double width, double height) {
+        this(width, height, new FrameClock());
+    }
+
+    public Game(double width, double height, FrameClock frameClock) {
+        this(width, height, frameClock, GameConfig.DEFAULT);
+    }
+
+    /**
+     * @param config balance parameters of the simulation
+     */
+    public Game(double width, double height, FrameClock frameClock, GameConfig config) {
+        simulation = new Simulation(config);
+        this.width = width;
+        this.height = height;
+
         //create canvas
         gameCanvas = new Canvas();
         gameCanvas.setHeight(height);
         gameCanvas.setWidth(width);
+        gameCanvas.getTransforms().add(canvasScale);
+        gameNode = new Group(gameCanvas);
+        renderBatch = new RenderBatch(gameCanvas);
 
-        //create main game timer
-        gameTimer = new AnimationTimer() {
-            @Override
-            public void handle(long now) {
-                if (Double.compare(lastFrameTime, 0) != 0) {
-                    //get duration of last frame in milliseconds
-                    double deltaTime = Utility.nanoToMilliseconds(now - lastFrameTime);
-                    //render the new frame
-                    tick(deltaTime);
-                }
-                //update time of the last frame
-                lastFrameTime = now;
-            }
-        };
-
-        //create a timeline that fires a shot every SHOT_DELAY seconds
-        shotTimeLine = new Timeline();
-        shotTimeLine.setCycleCount(Timeline.INDEFINITE);
-        KeyFrame shotFrame = new KeyFrame(
-                Duration.seconds(SHOT_DELAY),
-                actionEvent -> projectiles.addAll(weapon.fire(playerShip))
-        );
-        shotTimeLine.getKeyFrames().add(shotFrame);
-
-        //create levelUp timeline that increases the difficulty of the game every LEVEL_DURATION seconds
-        levelUpTimeLine = new Timeline();
-        levelUpTimeLine.setCycleCount(Timeline.INDEFINITE);
-        KeyFrame keyFrame = new KeyFrame(Duration.seconds(LEVEL_DURATION), actionEvent -> levelUp());
-        levelUpTimeLine.getKeyFrames().add(keyFrame);
+        this.frameClock = frameClock;
     }
 
     public int getScore() {
-        return score;
+        return simulation.getScore();
     }
 
     public int getNumLives() {
-        return numLives;
+        return simulation.getNumLives();
     }
 
-    public void startGame() {
-        score = 0;
-        numLives = NUM_LIVES;
-
-        //create sprites
-        createSprites();
-
-        //create weapon
-        weapon = new Weapon();
+    public Simulation getSimulation() {
+        return simulation;
+    }
 
-        //start timers
-        gameTimer.start();
-        levelUpTimeLine.play();
+    public void startGame() {
+        replayPlayer = null;
+        simulation.startGame();
+        startGameLoop();
+    }
 
-        //set the game state
-        isGameStarted = true;
+    /**
+     * Start a game with the given seed, games with the same seed and inputs are the same
+     */
+    public void startGame(long seed) {
+        replayPlayer = null;
+        simulation.startGame(seed);
+        startGameLoop();
     }
 
-    private void createSprites() {
-        //create ship
-        playerShip = new Ship();
+    /**
+     * Show the recorded game, the game ends when the replay ends
+     */
+    public void startReplay(Replay replay) {
+        replayPlayer = new ReplayPlayer(replay, simulation);
+        replayPlayer.start();
+        startGameLoop();
+    }
 
-        //create meteors
-        meteors = new ArrayList<>();
-        for (int i = 0; i < NUM_METEORS; i++)
-            meteors.add(Meteor.spawnMeteor());
+    private void startGameLoop() {
+        if (hud != null) {
+            hud.setNumLives(simulation.getNumLives());
+            hud.setScore(simulation.getScore());
+        }
 
-        //create the list of shots
-        projectiles = new ArrayList<>();
+        //start the game loop, the first frame of the game is skipped, it can be only a part of a frame
+        isFirstFrame = true;
+        renderBatch.invalidate();
+        if (fixedTimestep != null)
+            fixedTimestep.reset();
+        frameClock.addListener(frameListener);
 
-        //create the list of powerUps
-        powerUps = new ArrayList<>();
+        //set the game state
+        isGameStarted = true;
     }
 
     public void endGame() {
         if (isGameStarted) {
-            //stop all timers
-            gameTimer.stop();
-            levelUpTimeLine.stop();
-            shotTimeLine.stop();
+            //stop the game loop
+            frameClock.removeListener(frameListener);
 
             //change the game state
             isGameStarted = false;
-
-            //remove all sprites
-            meteors.clear();
-            projectiles.clear();
-            powerUps.clear();
-            playerShip = null;
+            replayPlayer = null;
 
             //call onEndGameAction
             if (onEndGameAction != null)
@@ -182,151 +212,259 @@ public class Game implements NodeManager {
      * Start or end shooting
      */
     public void setFireMode(boolean isFireOn) {
-        if (isGameStarted) {
-            if (isFireOn) {
-                if (shotTimeLine.getStatus() == Animation.Status.STOPPED) {
-                    projectiles.addAll(weapon.fire(playerShip));
-                    shotTimeLine.play();
-                }
-            }
-            else {
-                shotTimeLine.stop();
-            }
+        if (isGameStarted && replayPlayer == null)
+            simulation.setFireMode(isFireOn);
+    }
+
+    public void setPlayerShipDirection(Ship.Direction direction) {
+        if (isGameStarted && replayPlayer == null)
+            simulation.setPlayerShipDirection(direction);
+    }
+
+    /**
+     * Set the fixed timestep of the simulation, null means that the simulation is advanced by the frame duration
+     */
+    public void setFixedTimestep(FixedTimestep fixedTimestep) {
+        this.fixedTimestep = fixedTimestep;
+        if (fixedTimestep != null)
+            fixedTimestep.reset();
+    }
+
+    public void setPerformanceStats(PerformanceStats performanceStats) {
+        this.performanceStats = performanceStats;
+        if (performanceStats != null) {
+            performanceStats.setSimulation(simulation);
+            performanceStats.setRenderScale(renderScale);
         }
     }
 
+    /**
+     * Speed up or slow down the whole game, all timings of the game are in simulation time, so they are scaled too.
+     * With a fixed timestep the frame runs more ticks, up to its maximum number of ticks per frame.
+     */
+    public void setTimeScale(double timeScale) {
+        if (timeScale <= 0)
+            throw new IllegalArgumentException("Time scale must be positive: " + timeScale);
+        this.timeScale = timeScale;
+    }
 
-    public void setPlayerShipDirection(Ship.Direction direction) {
-        if (isGameStarted)
-            playerShip.setDirection(direction);
+    public double getTimeScale() {
+        return timeScale;
     }
 
-    public void setOnTickAction(Runnable runnable) {
-        onTickAction = runnable;
+    /**
+     * Record the inputs of the games started after this call, see getReplay
+     */
+    public void setRecording(boolean isRecording) {
+        simulation.setRecording(isRecording);
+    }
+
+    /**
+     * Replay of the current or the last game, null if it was not recorded
+     */
+    public Replay getReplay() {
+        return simulation.getReplay();
+    }
+
+    /**
+     * Set the cache of the pre-scaled and pre-rotated sprite images, null means that the images are scaled
+     * and rotated every time they are drawn
+     */
+    public void setSpriteCache(SpriteBitmapCache spriteCache) {
+        renderBatch.setBitmapCache(spriteCache);
+    }
+
+    /**
+     * Set the controller of the render scale, null means that the game is always rendered at the full resolution
+     */
+    public void setDynamicResolution(DynamicResolution dynamicResolution) {
+        this.dynamicResolution = dynamicResolution;
+        if (dynamicResolution != null)
+            dynamicResolution.reset();
+        setRenderScale(1);
+    }
+
+    /**
+     * Size of the canvas relative to the game size, 1 is the full resolution
+     */
+    public double getRenderScale() {
+        return renderScale;
+    }
+
+    /**
+     * Redraw only the changed parts of the canvas while they are at most the part of the canvas area
+     * (see RenderBatch.setDirtyAreaThreshold), 0 means that the whole canvas is redrawn on every frame
+     */
+    public void setDirtyAreaThreshold(double dirtyAreaThreshold) {
+        renderBatch.setDirtyAreaThreshold(dirtyAreaThreshold);
+    }
+
+    /**
+     * Set the HUD that is drawn into the game canvas, null means that the game draws only sprites
+     */
+    public void setHud(CanvasHUD hud) {
+        this.hud = hud;
+    }
+
+    /**
+     * Add a listener of the changes of the score, lives, weapon and level.
+     * The changes of all ticks of a frame are delivered together after the frame.
+     */
+    public void addEventListener(GameEventListener listener) {
+        eventListeners.add(listener);
+    }
+
+    public void removeEventListener(GameEventListener listener) {
+        eventListeners.remove(listener);
     }
 
     public void setOnEndGameAction(Runnable runnable) {
         onEndGameAction = runnable;
     }
 
-    private void tick(double deltaTime) {
-        updateItems(deltaTime);
+    private void onFrame(double deltaTime) {
+        if (isFirstFrame) {
+            isFirstFrame = false;
+            return;
+        }
 
-        handleCollisions();
+        //the frame time is measured in real time, it doesn't depend on the time scale
+        if (dynamicResolution != null)
+            setRenderScale(dynamicResolution.update(deltaTime));
+        frame(deltaTime * timeScale);
+    }
 
-        //after collisions, the state of the game may change, so need to check it before rendering
-        if (isGameStarted) {
-            drawItems();
-            if (onTickAction != null)
-                onTickAction.run();
-        }
+    /**
+     * Resize the canvas to the part of the game size and stretch it back to the game size
+     */
+    private void setRenderScale(double renderScale) {
+        if (renderScale == this.renderScale)
+            return;
+
+        this.renderScale = renderScale;
+        gameCanvas.setWidth(Math.ceil(width * renderScale));
+        gameCanvas.setHeight(Math.ceil(height * renderScale));
+        canvasScale.setX(width / gameCanvas.getWidth());
+        canvasScale.setY(height / gameCanvas.getHeight());
+        if (performanceStats != null)
+            performanceStats.setRenderScale(renderScale);
     }
 
-    private void handleCollisions() {
-        //meteor collisions
-        for (Sprite meteor: meteors) {
-            //collisions with playerShip
-            if (meteor.checkCollision(playerShip)) {
-                numLives--;
-                if (numLives < 0) {
-                    endGame();
-                    return;
-                }
-                Utility.setPositionAboveCanvas(meteor);
-            }
-            else {
-                //collisions with projectiles
-                Iterator<Sprite> projectileIt = projectiles.iterator();
-                while (projectileIt.hasNext()) {
-                    Sprite shot = projectileIt.next();
-                    if (shot.checkCollision(meteor)) {
-                        score++;
-                        Utility.setPositionAboveCanvas(meteor);
-                        projectileIt.remove();
-                    }
-                }
-            }
-        }
+    /**
+     * Advance the simulation by the duration of the frame and render the frame
+     */
+    private void frame(double frameTime) {
+        double alpha = 1;
+        long ticksStart = performanceStats == null ? 0 : System.nanoTime();
+        int ticks = 1;
 
-        //power up collisions
-        Iterator<PowerUp> powerUpIt = powerUps.iterator();
-        while (powerUpIt.hasNext()) {
-            PowerUp powerUp = powerUpIt.next();
-            if (powerUp.checkCollision(playerShip)) {
-                switch (powerUp.getType()) {
-                    case HEALTH_UP -> numLives++;
-                    case WEAPON_UP -> weapon.upgrade();
-                    case SCORE_UP -> score += SCORE_UP_BONUS;
-                }
-                powerUpIt.remove();
+        if (fixedTimestep == null) {
+            tick(frameTime);
+        }
+        else {
+            ticks = fixedTimestep.advance(frameTime);
+            for (int i = 0; i < ticks && !isGameFinished(); i++) {
+                simulation.savePreviousPositions();
+                tick(fixedTimestep.getTickTime());
             }
+            alpha = fixedTimestep.getAlpha();
         }
-    }
 
-    private void updateItems(double deltaTime) {
-        //update playerShip, if the ship went beyond the canvas, roll back the update
-        double playerPosX = playerShip.getPosX();
-        playerShip.update(deltaTime);
-        if (playerShip.getPosX() < 0 || playerShip.getPosX() > 1 - playerShip.getWidth())
-            playerShip.setPosX(playerPosX);
+        if (performanceStats != null)
+            performanceStats.recordTicks(ticks, System.nanoTime() - ticksStart);
 
-        //update meteors, if the meteor went beyond the canvas, move it to a random position above the canvas
-        for (Sprite meteor: meteors) {
-            meteor.update(deltaTime);
-            if (meteor.getPosY() > 1)
-                Utility.setPositionAboveCanvas(meteor);
-        }
+        TickPhaseEvent eventsEvent = TickPhaseEvent.beginPhase();
+        deliverEvents();
+        TickPhaseEvent.commitPhase(eventsEvent, TickPhaseEvent.DELIVER_EVENTS, simulation);
 
-        //update projectiles, if the projectile went beyond the canvas, remove it
-        Iterator<Sprite> projectileIt = projectiles.iterator();
-        while (projectileIt.hasNext()) {
-            Sprite shot = projectileIt.next();
-            shot.update(deltaTime);
-            if (shot.getPosY() < -shot.getHeight())
-                projectileIt.remove();
+        //after collisions, the state of the game may change, so need to check it before rendering
+        if (isGameFinished()) {
+            endGame();
+            return;
         }
 
-        //update power-ups, if the power-up went beyond the canvas, remove it
-        Iterator<PowerUp> powerUpIt = powerUps.iterator();
-        while (powerUpIt.hasNext()) {
-            PowerUp powerUp = powerUpIt.next();
-            powerUp.update(deltaTime);
-            //if powerUp crosses the border, remove it
-            if (powerUp.getPosY() > 1) {
-                powerUpIt.remove();
-            }
-        }
+        TickPhaseEvent drawEvent = TickPhaseEvent.beginPhase();
+        drawItems(alpha);
+        TickPhaseEvent.commitPhase(drawEvent, TickPhaseEvent.DRAW_ITEMS, simulation);
+    }
+
+    /**
+     * Run one tick of the simulation, a replay uses the tick duration of the recorded game
+     */
+    private void tick(double tickTime) {
+        if (replayPlayer == null)
+            simulation.tick(tickTime);
+        else
+            replayPlayer.step();
+    }
+
+    private boolean isGameFinished() {
+        return simulation.isGameOver() || (replayPlayer != null && replayPlayer.isFinished());
     }
 
-    private void drawItems() {
-        GraphicsContext graphicsContext = gameCanvas.getGraphicsContext2D();
+    /**
+     * Pass the changes of the game state to the HUD and the listeners, nothing is done if nothing changed
+     */
+    private void deliverEvents() {
+        GameEvents events = simulation.getEvents();
+        if (events.isEmpty())
+            return;
+
+        if (hud != null) {
+            if (events.contains(GameEvent.LIVES_CHANGED))
+                hud.setNumLives(events.getNumLives());
+            if (events.contains(GameEvent.SCORE_CHANGED))
+                hud.setScore(events.getScore());
+        }
+        for (GameEventListener listener : eventListeners)
+            listener.onGameEvents(events);
 
-        //clear canvas
-        graphicsContext.clearRect(0, 0, gameCanvas.getWidth(), gameCanvas.getHeight());
+        simulation.clearEvents();
+    }
 
-        //draw sprites
-        playerShip.draw(gameCanvas);
-        for (Sprite meteor: meteors)
-            meteor.draw(gameCanvas);
-        for (Sprite shot: projectiles)
-            shot.draw(gameCanvas);
-        for (PowerUp powerUp: powerUps)
-            powerUp.draw(gameCanvas);
+    /**
+     * Draw all sprites
+     * @param alpha part of the way from the previous tick to the current one (1 means the current positions)
+     */
+    private void drawItems(double alpha) {
+        //queue sprites
+        EntityStore ships = simulation.getShips();
+        EntityStore meteors = simulation.getMeteors();
+        EntityStore projectiles = simulation.getProjectiles();
+        EntityStore powerUps = simulation.getPowerUps();
+
+        for (int ship = 0; ship < ships.size(); ship++)
+            addEntity(SHIP_LAYER, ships, ship, Resource.MAIN_SHIP, alpha);
+        for (int meteor = 0; meteor < meteors.size(); meteor++)
+            addEntity(METEOR_LAYER, meteors, meteor, Meteor.getResource(meteors.getType(meteor)), alpha);
+        for (int shot = 0; shot < projectiles.size(); shot++)
+            addEntity(PROJECTILE_LAYER, projectiles, shot, Resource.SHOT, alpha);
+        for (int powerUp = 0; powerUp < powerUps.size(); powerUp++)
+            addEntity(POWER_UP_LAYER, powerUps, powerUp, PowerUp.getType(powerUps.getType(powerUp)).getResource(), alpha);
+
+        //hud over the sprites, the hud is laid out in the game size
+        if (hud != null)
+            hud.addTo(renderBatch, HUD_LAYER, width, height);
+
+        //clear the canvas (or only its changed parts) and draw the sprites,
+        //the cached sprite images have the pixel size of the screen (HiDPI)
+        renderBatch.setPixelScale(getOutputScale());
+        renderBatch.flush();
     }
 
     /**
-     * Every LEVEL_DURATION seconds the difficulty level increases.
-     * Meteorites are accelerated in MULTIPLIER_BY_LEVEL times and one power up is created
+     * Number of screen pixels per pixel of the game, more than 1 on HiDPI screens
      */
-    private void levelUp() {
-        //scale meteor speed
-        for (Sprite meteor: meteors)
-            meteor.setSpeedY(meteor.getSpeedY() * MULTIPLIER_BY_LEVEL);
-
-        //create power up
-        PowerUp powerUp = PowerUp.getRandomPowerUp();
-        Utility.setPositionAboveCanvas(powerUp);
-        powerUp.setSpeedY(meteors.get(0).getSpeedY());
-        powerUps.add(powerUp);
+    private double getOutputScale() {
+        Scene scene = gameCanvas.getScene();
+        if (scene == null || scene.getWindow() == null)
+            return 1;
+        return scene.getWindow().getOutputScaleX();
+    }
+
+    private void addEntity(int layer, EntityStore store, int index, Resource resource, double alpha) {
+        ImageRegion region = spriteAtlas.get(resource);
+        renderBatch.add(layer, region, store.getInterpolatedPosX(index, alpha), store.getInterpolatedPosY(index, alpha),
+                store.getWidth(index), store.getHeight(index), store.getRotationAngle(index));
     }
 }
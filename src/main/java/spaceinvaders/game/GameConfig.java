@@ -0,0 +1,53 @@
+package spaceinvaders.game;
+
+/**
+ * Balance parameters of the game, the simulation is created with one config (DEFAULT in the game).
+ * Used to compare the difficulty of other values without playing (see spaceinvaders.tools.BalanceSweep).
+ * @param numMeteors number of meteors on the screen
+ * @param numLives lives at the start of the game
+ * @param scoreUpBonus score of the score power-up
+ * @param shotDelay time between the shots in milliseconds
+ * @param levelDuration time of one level in milliseconds
+ * @param multiplierByLevel how many times the speed of the meteors increases per level
+ */
+public record GameConfig(int numMeteors, int numLives, int scoreUpBonus, double shotDelay, double levelDuration,
+                         double multiplierByLevel) {
+    public static final GameConfig DEFAULT = new GameConfig(20, 3, 50, 200, 10_000, 1.1);
+
+    public GameConfig {
+        if (numMeteors < 1)
+            throw new IllegalArgumentException("Number of meteors must be positive: " + numMeteors);
+        if (numLives < 0)
+            throw new IllegalArgumentException("Number of lives must not be negative: " + numLives);
+        if (shotDelay <= 0)
+            throw new IllegalArgumentException("Shot delay must be positive: " + shotDelay);
+        if (levelDuration <= 0)
+            throw new IllegalArgumentException("Level duration must be positive: " + levelDuration);
+        if (multiplierByLevel <= 0)
+            throw new IllegalArgumentException("Multiplier by level must be positive: " + multiplierByLevel);
+    }
+
+    public GameConfig withNumMeteors(int numMeteors) {
+        return new GameConfig(numMeteors, numLives, scoreUpBonus, shotDelay, levelDuration, multiplierByLevel);
+    }
+
+    public GameConfig withNumLives(int numLives) {
+        return new GameConfig(numMeteors, numLives, scoreUpBonus, shotDelay, levelDuration, multiplierByLevel);
+    }
+
+    public GameConfig withScoreUpBonus(int scoreUpBonus) {
+        return new GameConfig(numMeteors, numLives, scoreUpBonus, shotDelay, levelDuration, multiplierByLevel);
+    }
+
+    public GameConfig withShotDelay(double shotDelay) {
+        return new GameConfig(numMeteors, numLives, scoreUpBonus, shotDelay, levelDuration, multiplierByLevel);
+    }
+
+    public GameConfig withLevelDuration(double levelDuration) {
+        return new GameConfig(numMeteors, numLives, scoreUpBonus, shotDelay, levelDuration, multiplierByLevel);
+    }
+
+    public GameConfig withMultiplierByLevel(double multiplierByLevel) {
+        return new GameConfig(numMeteors, numLives, scoreUpBonus, shotDelay, levelDuration, multiplierByLevel);
+    }
+}
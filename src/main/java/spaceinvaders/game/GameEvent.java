@@ -0,0 +1,13 @@
+package spaceinvaders.game;
+
+/**
+ * Types of the changes of the game state, see GameEvents
+ */
+public enum GameEvent {
+    SCORE_CHANGED,
+    LIVES_CHANGED,
+    WEAPON_UPGRADED,
+    POWER_UP_COLLECTED,
+    LEVEL_UP,
+    GAME_OVER
+}
@@ -0,0 +1,13 @@
+package spaceinvaders.game;
+
+/**
+ * Listener of the changes of the game state.
+ * It is called at most once per frame and only if the state changed.
+ */
+@FunctionalInterface
+public interface GameEventListener {
+    /**
+     * @param events all changes since the previous call, the object is reused, so it must not be kept
+     */
+    void onGameEvents(GameEvents events);
+}
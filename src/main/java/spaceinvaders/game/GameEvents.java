@@ -0,0 +1,166 @@
+package spaceinvaders.game;
+
+/**
+ * Changes of the game state, coalesced over one or more ticks.
+ * <p>
+ * The simulation records every change with its exact delta, several changes of the same kind are merged
+ * (e.g. three hits in one tick are one SCORE_CHANGED with the delta 3). An event is contained in the batch only
+ * if its total delta is not zero. New values are stored with the deltas, so listeners don't need to read
+ * the simulation. The object is reused after the batch is delivered, nothing is allocated per tick.
+ */
+public class GameEvents {
+    private static final PowerUp.Type[] POWER_UP_TYPES = PowerUp.Type.values();
+
+    private int score;
+    private int scoreDelta;
+
+    private int numLives;
+    private int livesDelta;
+
+    private int weaponLevel;
+    private int weaponLevelDelta;
+
+    private int level;
+    private int levelDelta;
+
+    private final int[] powerUpCounts = new int[POWER_UP_TYPES.length];
+    private int numPowerUps;
+
+    private boolean isGameOver;
+
+    /**
+     * Clear the changes and set the values of a new game
+     */
+    void reset(int score, int numLives, int weaponLevel, int level) {
+        clear();
+        this.score = score;
+        this.numLives = numLives;
+        this.weaponLevel = weaponLevel;
+        this.level = level;
+    }
+
+    void scoreChanged(int score, int delta) {
+        this.score = score;
+        scoreDelta += delta;
+    }
+
+    void livesChanged(int numLives, int delta) {
+        this.numLives = numLives;
+        livesDelta += delta;
+    }
+
+    void weaponUpgraded(int weaponLevel, int delta) {
+        this.weaponLevel = weaponLevel;
+        weaponLevelDelta += delta;
+    }
+
+    void levelUp(int level) {
+        this.level = level;
+        levelDelta++;
+    }
+
+    void powerUpCollected(PowerUp.Type type) {
+        powerUpCounts[type.ordinal()]++;
+        numPowerUps++;
+    }
+
+    void gameOver() {
+        isGameOver = true;
+    }
+
+    public boolean contains(GameEvent event) {
+        return switch (event) {
+            case SCORE_CHANGED -> scoreDelta != 0;
+            case LIVES_CHANGED -> livesDelta != 0;
+            case WEAPON_UPGRADED -> weaponLevelDelta != 0;
+            case POWER_UP_COLLECTED -> numPowerUps != 0;
+            case LEVEL_UP -> levelDelta != 0;
+            case GAME_OVER -> isGameOver;
+        };
+    }
+
+    public boolean isEmpty() {
+        return scoreDelta == 0 && livesDelta == 0 && weaponLevelDelta == 0 && numPowerUps == 0 && levelDelta == 0
+                && !isGameOver;
+    }
+
+    /**
+     * Forget all changes, the new values are kept
+     */
+    public void clear() {
+        scoreDelta = 0;
+        livesDelta = 0;
+        weaponLevelDelta = 0;
+        levelDelta = 0;
+        for (int i = 0; i < powerUpCounts.length; i++)
+            powerUpCounts[i] = 0;
+        numPowerUps = 0;
+        isGameOver = false;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getScoreDelta() {
+        return scoreDelta;
+    }
+
+    public int getNumLives() {
+        return numLives;
+    }
+
+    public int getLivesDelta() {
+        return livesDelta;
+    }
+
+    public int getWeaponLevel() {
+        return weaponLevel;
+    }
+
+    public int getWeaponLevelDelta() {
+        return weaponLevelDelta;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getLevelDelta() {
+        return levelDelta;
+    }
+
+    /**
+     * Number of collected power-ups of the type
+     */
+    public int getPowerUpCount(PowerUp.Type type) {
+        return powerUpCounts[type.ordinal()];
+    }
+
+    /**
+     * Number of collected power-ups of all types
+     */
+    public int getPowerUpCount() {
+        return numPowerUps;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("GameEvents[");
+        if (scoreDelta != 0)
+            builder.append(" score ").append(score).append(" (").append(scoreDelta).append(')');
+        if (livesDelta != 0)
+            builder.append(" lives ").append(numLives).append(" (").append(livesDelta).append(')');
+        if (weaponLevelDelta != 0)
+            builder.append(" weapon ").append(weaponLevel).append(" (").append(weaponLevelDelta).append(')');
+        if (levelDelta != 0)
+            builder.append(" level ").append(level).append(" (").append(levelDelta).append(')');
+        for (PowerUp.Type type : POWER_UP_TYPES) {
+            if (powerUpCounts[type.ordinal()] != 0)
+                builder.append(' ').append(type).append(" x").append(powerUpCounts[type.ordinal()]);
+        }
+        if (isGameOver)
+            builder.append(" game over");
+        return builder.append(" ]").toString();
+    }
+}
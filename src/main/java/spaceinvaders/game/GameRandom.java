@@ -0,0 +1,52 @@
+package spaceinvaders.game;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Random streams of one game, all derived from one seed.
+ * <p>
+ * Every subsystem has its own stream, so the numbers drawn by one subsystem don't shift the numbers of the others
+ * (e.g. a new kind of meteor doesn't change where the power-ups appear). The same seed gives the same game
+ * if the inputs are the same (see spaceinvaders.replay).
+ */
+public class GameRandom {
+    private final long seed;
+    private final Random meteors;
+    private final Random powerUps;
+    private final Random positions;
+
+    public GameRandom(long seed) {
+        this.seed = seed;
+
+        SplittableRandom seeds = new SplittableRandom(seed);
+        meteors = new Random(seeds.nextLong());
+        powerUps = new Random(seeds.nextLong());
+        positions = new Random(seeds.nextLong());
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Images and angles of the meteors
+     */
+    public Random meteors() {
+        return meteors;
+    }
+
+    /**
+     * Types of the power-ups
+     */
+    public Random powerUps() {
+        return powerUps;
+    }
+
+    /**
+     * Positions of the new and respawned meteors and power-ups
+     */
+    public Random positions() {
+        return positions;
+    }
+}
@@ -1,6 +1,6 @@
 package spaceinvaders.game;
 
-import javafx.scene.image.Image;
+import spaceinvaders.AssetPack;
 import spaceinvaders.Resource;
 import spaceinvaders.Utility;
 
@@ -8,45 +8,47 @@ import java.util.List;
 import java.util.Random;
 
 /**
- * Meteor sprite.
- * Class is used to configure and spawn meteors.
+ * Meteor entities.
+ * Class is used to configure and spawn meteors in the entity store.
+ * <p>
+ * Meteors of the entity store don't need JavaFX, the renderer draws them from the image resource of the type.
  */
-public class Meteor extends Sprite {
+public class Meteor {
     //meteor constant parameters
-    private static final Random RANDOMIZER = new Random();
     private static final double HEIGHT = 0.05;
     private static final double SPEED = 0.0003;
-    private static final List<Image> METEOR_IMAGES = List.of(
-            Utility.getImage(Resource.METEOR_ONE),
-            Utility.getImage(Resource.METEOR_TWO),
-            Utility.getImage(Resource.METEOR_THREE)
+    private static final List<Resource> METEOR_RESOURCES = List.of(
+            Resource.METEOR_ONE,
+            Resource.METEOR_TWO,
+            Resource.METEOR_THREE
     ); //list of all possible images of meteors
 
     /**
-     * Create meteor at a random position above the canvas.
-     * The meteorite moves vertically down.
-     * @param angle rotation angle of the meteorite image.
+     * Create a meteorite with a random image in a random position above the canvas with a random rotation angle
+     * inside the entity store. The type of the entity is the index of the meteor image (see getResource).
+     * @param random stream of the image and the angle
+     * @param positionRandom stream of the position
+     * @return index of the new meteor in the store
      */
-    public Meteor(Image meteorImage, double angle)
-    {
-        super(meteorImage);
+    public static int spawnMeteor(EntityStore store, Random random, Random positionRandom) {
+        int randomIndex = random.nextInt(METEOR_RESOURCES.size());
+        Resource randomResource = METEOR_RESOURCES.get(randomIndex);
+        double randomAngle = random.nextInt(360);
 
-        double width = meteorImage.getWidth() * (HEIGHT / meteorImage.getHeight());
-        setSize(width, HEIGHT);
-        setSpeedY(SPEED);
-        setRotationAngle(angle);
-        Utility.setPositionAboveCanvas(this);
+        int index = store.add(randomIndex);
+        double width = AssetPack.getImageWidth(randomResource) * (HEIGHT / AssetPack.getImageHeight(randomResource));
+        store.setSize(index, width, HEIGHT);
+        store.setSpeedY(index, SPEED);
+        store.setRotationAngle(index, randomAngle);
+        Utility.setPositionAboveCanvas(store, index, positionRandom);
+
+        return index;
     }
 
     /**
-     * Create a meteorite with a random image in a random position above the canvas with a random rotation angle.
-     * Used to create all meteorites in the game.
+     * Get the image resource of the meteor entity type
      */
-    public static Meteor spawnMeteor() {
-        int randomIndex = RANDOMIZER.nextInt(METEOR_IMAGES.size());
-        Image randomImage = METEOR_IMAGES.get(randomIndex);
-        double randomAngle = RANDOMIZER.nextInt(360);
-
-        return new Meteor(randomImage, randomAngle);
+    public static Resource getResource(int type) {
+        return METEOR_RESOURCES.get(type);
     }
 }
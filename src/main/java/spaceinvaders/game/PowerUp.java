@@ -1,21 +1,21 @@
 package spaceinvaders.game;
 
-import javafx.scene.image.Image;
+import spaceinvaders.AssetPack;
 import spaceinvaders.Resource;
 import spaceinvaders.Utility;
 
 import java.util.Random;
 
 /**
- * Power-up sprite.
- * Class is used to configure and spawn power-ups.
+ * Power-up entities.
+ * Class is used to configure and spawn power-ups in the entity store.
  * <p>
  * There are currently 3 types of power-ups:
  *  Health power-up - increase health
  *  Weapon power-up - upgrade weapon
  *  Score power-up - increase score
  */
-public class PowerUp extends Sprite {
+public class PowerUp {
     /**
      * All types of power-ups with the corresponding image
      */
@@ -24,53 +24,51 @@ public class PowerUp extends Sprite {
         WEAPON_UP(Resource.WEAPON_UP),
         SCORE_UP(Resource.SCORE_UP);
 
-        private final Image IMAGE;
+        private final Resource resource;
 
         Type(Resource imageResource) {
-            IMAGE = Utility.getImage(imageResource);
+            resource = imageResource;
         }
 
-        public Image getImage() {
-            return IMAGE;
+        public Resource getResource() {
+            return resource;
         }
     }
 
-    private static final Random RANDOMIZER = new Random();
     private static final double HEIGHT = 0.04;
-
-    private final Type type;
+    private static final Type[] TYPES = Type.values();
 
     /**
-     * Create a power-up of the given type at a random position above the canvas
+     * Create a random power-up at a random position above the canvas inside the entity store.
+     * The type of the entity is the ordinal of the power-up type (see getType).
+     * @param random stream of the type
+     * @param positionRandom stream of the position
+     * @return index of the new power-up in the store
      */
-    public PowerUp(Type type) {
-        super(type.getImage());
-
-        this.type = type;
+    public static int spawnPowerUp(EntityStore store, Random random, Random positionRandom) {
+        return spawnPowerUp(store, TYPES[random.nextInt(TYPES.length)], positionRandom);
+    }
 
-        //set size
-        Image image = getImage();
-        double width = HEIGHT * image.getWidth() / image.getHeight();
-        setSize(width, HEIGHT);
+    /**
+     * Create a power-up of the given type inside the entity store
+     * @param positionRandom stream of the position
+     * @return index of the new power-up in the store
+     */
+    public static int spawnPowerUp(EntityStore store, Type type, Random positionRandom) {
+        Resource resource = type.getResource();
 
-        //set position
-        Utility.setPositionAboveCanvas(this);
-    }
+        int index = store.add(type.ordinal());
+        double width = HEIGHT * AssetPack.getImageWidth(resource) / AssetPack.getImageHeight(resource);
+        store.setSize(index, width, HEIGHT);
+        Utility.setPositionAboveCanvas(store, index, positionRandom);
 
-    public Type getType() {
-        return type;
+        return index;
     }
 
     /**
-     * Create a random power-up at a random position above the canvas.
-     * Used to create all power-ups in the game
+     * Get the power-up type of the entity type
      */
-    public static PowerUp getRandomPowerUp() {
-        Type[] types = Type.values();
-
-        int randomIndex = RANDOMIZER.nextInt(types.length);
-        Type randomType = types[randomIndex];
-
-        return new PowerUp(randomType);
+    public static Type getType(int type) {
+        return TYPES[type];
     }
 }
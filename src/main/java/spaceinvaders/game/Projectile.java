@@ -1,36 +1,42 @@
 package spaceinvaders.game;
 
-import javafx.scene.image.Image;
+import spaceinvaders.AssetPack;
 import spaceinvaders.Resource;
-import spaceinvaders.Utility;
 
 /**
- * Projectile sprite. Inside the class, the sprite is configured.
+ * Projectile entities. Inside the class, the projectiles are configured.
+ * <p>
+ * The size and the speed of a projectile are used by Weapon patterns,
+ * the renderer draws projectiles from the SHOT resource.
  */
-public class Projectile extends Sprite {
+public class Projectile {
     //projectile constant parameters
-    private static final Image SHOT_IMAGE = Utility.getImage(Resource.SHOT);
     private static final double HEIGHT = 0.035;
-    private static final double WIDTH = SHOT_IMAGE.getWidth() * (HEIGHT / SHOT_IMAGE.getHeight());
+    private static final double WIDTH = AssetPack.getImageWidth(Resource.SHOT)
+            * (HEIGHT / AssetPack.getImageHeight(Resource.SHOT));
     private static final double SPEED = -0.0006;
 
-    /**
-     * Create a projectile that moves at a specific angle to the y-axis
-     */
-    public Projectile(double angle) {
-        super(SHOT_IMAGE);
+    public static double getShotWidth() {
+        return WIDTH;
+    }
 
-        //set size
-        setSize(WIDTH, HEIGHT);
+    public static double getShotHeight() {
+        return HEIGHT;
+    }
 
-        //set angle
-        setRotationAngle(angle);
+    /**
+     * Horizontal speed of a projectile that moves at a specific angle to the y-axis
+     */
+    public static double getShotSpeedX(double angle) {
+        double angleInRadians = angle * (Math.PI / 180);
+        return SPEED * Math.sin(angleInRadians);
+    }
 
-        //set speed
+    /**
+     * Vertical speed of a projectile that moves at a specific angle to the y-axis
+     */
+    public static double getShotSpeedY(double angle) {
         double angleInRadians = angle * (Math.PI / 180);
-        double speedX = SPEED * Math.sin(angleInRadians);
-        double speedY = SPEED * Math.cos(angleInRadians);
-        setSpeedX(speedX);
-        setSpeedY(speedY);
+        return SPEED * Math.cos(angleInRadians);
     }
 }
@@ -1,19 +1,19 @@
 package spaceinvaders.game;
 
-import javafx.scene.image.Image;
+import spaceinvaders.AssetPack;
 import spaceinvaders.Resource;
-import spaceinvaders.Utility;
 
 /**
- * Ship sprite. In constructor the sprite is configured.
- * The ship moves only horizontally.
- * There is also a function that allows you to set the direction of movement of the ship.
+ * Ship entity. Class is used to configure and spawn the ship in the entity store.
+ * The ship moves only horizontally, with the speed of its direction of movement.
+ * <p>
+ * The ship of the entity store doesn't need JavaFX, the renderer draws it from the MAIN_SHIP resource.
  */
-public class Ship extends Sprite {
+public class Ship {
     //ship constant parameters
-    private static final Image SHIP_IMAGE = Utility.getImage(Resource.MAIN_SHIP);
     private static final double HEIGHT = 0.07;
-    private static final double WIDTH = HEIGHT * SHIP_IMAGE.getWidth() / SHIP_IMAGE.getHeight();
+    private static final double WIDTH = HEIGHT * AssetPack.getImageWidth(Resource.MAIN_SHIP)
+            / AssetPack.getImageHeight(Resource.MAIN_SHIP);
     private static final double Y_PADDING = 0.02;
     private static final double SPEED = 0.0004;
 
@@ -26,23 +26,25 @@ public class Ship extends Sprite {
         FORWARD
     }
 
-    public Ship() {
-        super(SHIP_IMAGE);
-
-        //set size
-        setSize(WIDTH, HEIGHT);
-
-        //set position to center x and bottom y
-        double shipPosX = 0.5 - WIDTH / 2;
-        double shipPosY = 1 - HEIGHT - Y_PADDING;
-        setPos(shipPosX, shipPosY);
+    /**
+     * Create the ship at the center of the bottom of the canvas inside the entity store
+     * @return index of the ship in the store
+     */
+    public static int spawnShip(EntityStore store, int type) {
+        int index = store.add(type);
+        store.setSize(index, WIDTH, HEIGHT);
+        store.setPos(index, 0.5 - WIDTH / 2, 1 - HEIGHT - Y_PADDING);
+        return index;
     }
 
-    public void setDirection(Direction direction) {
-        switch (direction) {
-            case FORWARD -> setSpeedX(0);
-            case LEFT -> setSpeedX(-SPEED);
-            case RIGHT -> setSpeedX(SPEED);
-        }
+    /**
+     * Horizontal speed of the ship moving in the direction
+     */
+    public static double getDirectionSpeed(Direction direction) {
+        return switch (direction) {
+            case FORWARD -> 0;
+            case LEFT -> -SPEED;
+            case RIGHT -> SPEED;
+        };
     }
 }
@@ -0,0 +1,575 @@
+package spaceinvaders.game;
+
+import spaceinvaders.Resource;
+import spaceinvaders.Utility;
+import spaceinvaders.game.collision.HitMask;
+import spaceinvaders.game.collision.HitMaskCache;
+import spaceinvaders.game.collision.Narrowphase;
+import spaceinvaders.game.collision.SpatialGrid;
+import spaceinvaders.replay.Replay;
+import spaceinvaders.replay.ReplayRecorder;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The game logic without rendering.
+ * <p>
+ * The simulation owns all sprites of the game (as entity stores), the weapon, the score and the lives.
+ * It is advanced by the tick function and doesn't depend on JavaFX, so it can run without a display
+ * and as fast as the processor allows. Game is the JavaFX driver that runs the simulation and draws its state.
+ * <p>
+ * All timings (the delay between shots, the duration of a level) are measured in simulation time,
+ * which is the sum of the tick durations.
+ * <p>
+ * All random numbers of a game come from the streams of its seed (see GameRandom), so a game is determined
+ * by the seed, the tick durations and the inputs. If recording is on, they are recorded (see getReplay).
+ */
+public class Simulation {
+    private static final int PROJECTILE_CAPACITY = 256; //the store grows if more projectiles are in flight
+    private static final int GRID_SIZE = 16; //number of collision grid cells per side, a cell is a bit larger than a meteor
+    private static final int TIMER_SLOTS = 256; //slots of the timing wheel, one round is a bit more than 4 seconds
+    private static final double TIMER_RESOLUTION = 1000.0 / 60; //in milliseconds, about one tick
+
+    public static final int SHIP_TYPE = 0; //the only entity of the ship store
+    public static final int PROJECTILE_TYPE = 0; //all projectiles have the same image
+
+    private static final Random SEED_GENERATOR = new Random(); //seeds of the games started without a seed
+
+    /**
+     * Balance parameters: number of meteors, lives, shot delay, level duration etc.
+     */
+    private final GameConfig config;
+
+    //sprites and sprites generators
+    private final EntityStore ships = new EntityStore(1);
+    private final EntityStore meteors;
+    private final EntityStore projectiles = new EntityStore(PROJECTILE_CAPACITY);
+    private final EntityStore powerUps = new EntityStore();
+    private Weapon weapon;
+    private int playerShip;
+
+    /**
+     * Collision broadphase, projectiles and the ship are checked only against meteors in the nearby cells
+     */
+    private final SpatialGrid meteorGrid = new SpatialGrid(GRID_SIZE, GRID_SIZE);
+
+    /**
+     * Hit masks of the rotated images, used for the exact collision check of the candidates found by the grid
+     */
+    private final HitMaskCache hitMasks = new HitMaskCache();
+
+    /**
+     * Moves the meteors, projectiles and power-ups, large stores are moved by several threads
+     */
+    private EntityUpdater entityUpdater = new EntityUpdater();
+
+    private int score;
+    private int numLives;
+    private int level;
+    private boolean isGameOver = true;
+    private GameRandom random;
+
+    /**
+     * If set, meteors that hit the ship don't take lives (see spaceinvaders.stress)
+     */
+    private boolean isInvulnerable;
+
+    /**
+     * If recording is on, the inputs of every game are recorded
+     */
+    private boolean isRecording;
+    private ReplayRecorder recorder;
+
+    /**
+     * Changes of the score, lives, weapon and level since the events were last cleared
+     */
+    private final GameEvents events = new GameEvents();
+
+    /**
+     * Timed events of the game (shots, level ups), the wheel also keeps the simulation time
+     */
+    private final TimingWheel timers = new TimingWheel(TIMER_SLOTS, TIMER_RESOLUTION);
+    private final TimingWheel.Timer levelUpTimer;
+
+    /**
+     * If the weapon is active (setFireMode), the weapon fires every shot delay milliseconds
+     */
+    private final TimingWheel.Timer shotTimer;
+
+    //statistics of the game loop, see TickPhaseEvent
+    private long tickCount;
+    private int projectilesFired; //in the current tick
+    private int collisionsTested; //in the current tick
+
+    /**
+     * Simulation with the default balance of the game
+     */
+    public Simulation() {
+        this(GameConfig.DEFAULT);
+    }
+
+    public Simulation(GameConfig config) {
+        this.config = config;
+        meteors = new EntityStore(config.numMeteors());
+        levelUpTimer = new TimingWheel.Timer(this::levelUp, config.levelDuration());
+        shotTimer = new TimingWheel.Timer(this::fire, config.shotDelay());
+    }
+
+    /**
+     * Reset the state and start a new game with a random seed
+     */
+    public void startGame() {
+        startGame(SEED_GENERATOR.nextLong());
+    }
+
+    /**
+     * Reset the state and start a new game, all random numbers of the game are derived from the seed
+     */
+    public void startGame(long seed) {
+        random = new GameRandom(seed);
+        recorder = isRecording ? new ReplayRecorder(seed) : null;
+
+        score = 0;
+        numLives = config.numLives();
+        level = 1;
+        tickCount = 0;
+
+        //reset the time and start the level timer, the weapon doesn't fire
+        timers.clear();
+        timers.schedule(levelUpTimer, config.levelDuration());
+
+        //create sprites
+        createSprites();
+
+        //create weapon
+        weapon = new Weapon();
+
+        //the new game starts without changes
+        events.reset(score, numLives, weapon.getLevel(), level);
+
+        isGameOver = false;
+    }
+
+    private void createSprites() {
+        //create ship
+        ships.clear();
+        playerShip = Ship.spawnShip(ships, SHIP_TYPE);
+
+        //create meteors
+        meteors.clear();
+        for (int i = 0; i < config.numMeteors(); i++)
+            Meteor.spawnMeteor(meteors, random.meteors(), random.positions());
+
+        //clear shots and power-ups of the previous game
+        projectiles.clear();
+        powerUps.clear();
+        meteorGrid.clear();
+    }
+
+    /**
+     * Advance the game by one tick: move all sprites, fire timed events and handle collisions
+     * @param deltaTime duration of the tick in milliseconds
+     */
+    public void tick(double deltaTime) {
+        if (isGameOver)
+            return;
+
+        if (recorder != null)
+            recorder.tick(tickCount, deltaTime);
+
+        tickCount++;
+        projectilesFired = 0;
+        collisionsTested = 0;
+
+        //every phase is a flight recorder event, the events are null while no recording runs
+        TickPhaseEvent updateEvent = TickPhaseEvent.beginPhase();
+        updateItems(deltaTime);
+        TickPhaseEvent.commitPhase(updateEvent, TickPhaseEvent.UPDATE_ITEMS, this);
+
+        TickPhaseEvent timersEvent = TickPhaseEvent.beginPhase();
+        timers.advanceTo(timers.getTime() + deltaTime);
+        TickPhaseEvent.commitPhase(timersEvent, TickPhaseEvent.TIMERS, this);
+
+        TickPhaseEvent collisionsEvent = TickPhaseEvent.beginPhase();
+        handleCollisions();
+        TickPhaseEvent.commitPhase(collisionsEvent, TickPhaseEvent.HANDLE_COLLISIONS, this);
+    }
+
+    /**
+     * Start or end shooting.
+     * The first shot is fired immediately, the next ones every shot delay of the config.
+     */
+    public void setFireMode(boolean isFireOn) {
+        if (isGameOver)
+            return;
+
+        if (recorder != null)
+            recorder.fireMode(tickCount, isFireOn);
+
+        if (isFireOn && !shotTimer.isScheduled()) {
+            fire();
+            timers.schedule(shotTimer, config.shotDelay());
+        }
+        else if (!isFireOn) {
+            timers.cancel(shotTimer);
+        }
+    }
+
+    public void setPlayerShipDirection(Ship.Direction direction) {
+        if (isGameOver)
+            return;
+
+        if (recorder != null)
+            recorder.direction(tickCount, direction);
+        ships.setSpeedX(playerShip, Ship.getDirectionSpeed(direction));
+    }
+
+    /**
+     * Remember the current positions of all sprites, called before every tick if the sprites are interpolated
+     */
+    public void savePreviousPositions() {
+        ships.savePreviousPositions();
+        meteors.savePreviousPositions();
+        projectiles.savePreviousPositions();
+        powerUps.savePreviousPositions();
+    }
+
+    /**
+     * Fire a weapon and add the fired projectiles to the game
+     */
+    private void fire() {
+        double weaponPosX = ships.getPosX(playerShip) + ships.getWidth(playerShip) / 2;
+        double weaponPosY = ships.getPosY(playerShip);
+        int numProjectiles = projectiles.size();
+        weapon.fire(weaponPosX, weaponPosY, projectiles, PROJECTILE_TYPE);
+        projectilesFired += projectiles.size() - numProjectiles;
+    }
+
+    /**
+     * Move all sprites, sprites that went beyond the canvas are respawned or removed
+     */
+    public void updateItems(double deltaTime) {
+        //update playerShip, if the ship went beyond the canvas, roll back the update
+        double playerPosX = ships.getPosX(playerShip);
+        ships.update(deltaTime);
+        if (ships.getPosX(playerShip) < 0 || ships.getPosX(playerShip) > 1 - ships.getWidth(playerShip))
+            ships.setPosX(playerShip, playerPosX);
+
+        //update meteors, if the meteor went beyond the canvas, move it to a random position above the canvas
+        int numCrossed = entityUpdater.update(meteors, deltaTime, EntityUpdater.Bound.BELOW_CANVAS);
+        for (int i = 0; i < numCrossed; i++)
+            Utility.setPositionAboveCanvas(meteors, entityUpdater.getCrossed(i), random.positions());
+
+        //update projectiles, if the projectile went beyond the canvas, remove it
+        numCrossed = entityUpdater.update(projectiles, deltaTime, EntityUpdater.Bound.ABOVE_CANVAS);
+        entityUpdater.removeCrossed(projectiles, numCrossed);
+
+        //update power-ups, if the power-up went beyond the canvas, remove it
+        numCrossed = entityUpdater.update(powerUps, deltaTime, EntityUpdater.Bound.BELOW_CANVAS);
+        entityUpdater.removeCrossed(powerUps, numCrossed);
+    }
+
+    /**
+     * Handle collisions of meteors with the ship and projectiles and of power-ups with the ship.
+     * If the ship has no lives left, the game is over.
+     */
+    public void handleCollisions() {
+        //place meteors in the grid, then check only the meteors near the ship and each projectile
+        meteorGrid.update(meteors);
+
+        //meteor collisions with playerShip
+        double shipPosX = ships.getPosX(playerShip);
+        double shipPosY = ships.getPosY(playerShip);
+        double shipWidth = ships.getWidth(playerShip);
+        double shipHeight = ships.getHeight(playerShip);
+        HitMask shipMask = hitMasks.get(Resource.MAIN_SHIP, ships.getRotationAngle(playerShip));
+        int numCandidates = meteorGrid.query(shipPosX, shipPosY, shipWidth, shipHeight);
+        for (int i = 0; i < numCandidates; i++) {
+            int meteor = meteorGrid.getCandidate(i);
+            collisionsTested++;
+            if (Narrowphase.collide(shipPosX, shipPosY, shipWidth, shipHeight, shipMask,
+                    meteors.getPosX(meteor), meteors.getPosY(meteor),
+                    meteors.getWidth(meteor), meteors.getHeight(meteor), meteorMask(meteor))) {
+                if (isInvulnerable) {
+                    respawnMeteor(meteor);
+                    continue;
+                }
+
+                numLives--;
+                events.livesChanged(numLives, -1);
+                if (numLives < 0) {
+                    isGameOver = true;
+                    events.gameOver();
+                    return;
+                }
+                respawnMeteor(meteor);
+            }
+        }
+
+        //meteor collisions with projectiles, the removed shot is replaced by the last one, so the index is not increased
+        int shot = 0;
+        while (shot < projectiles.size()) {
+            if (checkProjectileHit(shot))
+                projectiles.remove(shot);
+            else
+                shot++;
+        }
+
+        //power up collisions
+        int powerUp = 0;
+        while (powerUp < powerUps.size()) {
+            collisionsTested++;
+            if (powerUps.checkCollision(powerUp, ships, playerShip)) {
+                PowerUp.Type type = PowerUp.getType(powerUps.getType(powerUp));
+                switch (type) {
+                    case HEALTH_UP -> {
+                        numLives++;
+                        events.livesChanged(numLives, 1);
+                    }
+                    case WEAPON_UP -> {
+                        int weaponLevel = weapon.getLevel();
+                        weapon.upgrade();
+                        events.weaponUpgraded(weapon.getLevel(), weapon.getLevel() - weaponLevel);
+                    }
+                    case SCORE_UP -> {
+                        score += config.scoreUpBonus();
+                        events.scoreChanged(score, config.scoreUpBonus());
+                    }
+                }
+                events.powerUpCollected(type);
+                powerUps.remove(powerUp);
+            }
+            else {
+                powerUp++;
+            }
+        }
+    }
+
+    /**
+     * Check the projectile against the nearby meteors, the first meteor hit is destroyed
+     * @return true if the projectile hit a meteor
+     */
+    private boolean checkProjectileHit(int shot) {
+        HitMask shotMask = hitMasks.get(Resource.SHOT, projectiles.getRotationAngle(shot));
+        double shotPosX = projectiles.getPosX(shot);
+        double shotPosY = projectiles.getPosY(shot);
+        double shotWidth = projectiles.getWidth(shot);
+        double shotHeight = projectiles.getHeight(shot);
+
+        //the shot can be rotated, so its reach is its diagonal
+        double reach = (Math.hypot(shotWidth, shotHeight) - Math.min(shotWidth, shotHeight)) / 2;
+        int numCandidates = meteorGrid.query(shotPosX - reach, shotPosY - reach,
+                shotWidth + 2 * reach, shotHeight + 2 * reach);
+        for (int i = 0; i < numCandidates; i++) {
+            int meteor = meteorGrid.getCandidate(i);
+            collisionsTested++;
+            if (Narrowphase.collide(shotPosX, shotPosY, shotWidth, shotHeight, shotMask,
+                    meteors.getPosX(meteor), meteors.getPosY(meteor),
+                    meteors.getWidth(meteor), meteors.getHeight(meteor), meteorMask(meteor))) {
+                score++;
+                events.scoreChanged(score, 1);
+                respawnMeteor(meteor);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private HitMask meteorMask(int meteor) {
+        return hitMasks.get(Meteor.getResource(meteors.getType(meteor)), meteors.getRotationAngle(meteor));
+    }
+
+    /**
+     * Move the meteor to a random position above the canvas, the meteor leaves the collision grid
+     */
+    private void respawnMeteor(int meteor) {
+        Utility.setPositionAboveCanvas(meteors, meteor, random.positions());
+        meteorGrid.update(meteors, meteor);
+    }
+
+    /**
+     * Every level duration of the config the difficulty level increases.
+     * Meteorites are accelerated by the multiplier by level and one power up is created
+     */
+    private void levelUp() {
+        level++;
+        events.levelUp(level);
+
+        //scale meteor speed
+        for (int meteor = 0; meteor < meteors.size(); meteor++)
+            meteors.setSpeedY(meteor, meteors.getSpeedY(meteor) * config.multiplierByLevel());
+
+        //create power up
+        int powerUp = PowerUp.spawnPowerUp(powerUps, random.powerUps(), random.positions());
+        powerUps.setSpeedY(powerUp, meteors.getSpeedY(0));
+    }
+
+    /**
+     * Meteors that hit the ship don't take lives, the setting is kept for the next games
+     */
+    public void setInvulnerable(boolean isInvulnerable) {
+        this.isInvulnerable = isInvulnerable;
+    }
+
+    /**
+     * Add meteors above the canvas or remove the last meteors, so the game has the given number of meteors.
+     * The new meteors have the speed of the current level. Used by the stress test, the change is not recorded.
+     */
+    public void setNumMeteors(int numMeteors) {
+        if (numMeteors < 1)
+            throw new IllegalArgumentException("Number of meteors must be positive: " + numMeteors);
+
+        double levelMultiplier = Math.pow(config.multiplierByLevel(), level - 1);
+        while (meteors.size() < numMeteors) {
+            int meteor = Meteor.spawnMeteor(meteors, random.meteors(), random.positions());
+            meteors.setSpeedY(meteor, meteors.getSpeedY(meteor) * levelMultiplier);
+        }
+        while (meteors.size() > numMeteors)
+            meteors.remove(meteors.size() - 1);
+    }
+
+    /**
+     * Replace the weapon with a weapon of the given level, the level can be above the maximum level
+     * of the normal weapon (see Weapon). Used by the stress test, the change is not recorded.
+     */
+    public void setWeaponLevel(int weaponLevel) {
+        int previousLevel = weapon.getLevel();
+        weapon = new Weapon(Math.max(weaponLevel, weapon.getMaxLevel()));
+        while (weapon.getLevel() < weaponLevel)
+            weapon.upgrade();
+        events.weaponUpgraded(weapon.getLevel(), weapon.getLevel() - previousLevel);
+    }
+
+    /**
+     * Create the given number of power-ups of every type at once above the canvas, they fall at the speed
+     * of the meteors. Used by the stress test, the change is not recorded.
+     */
+    public void spawnPowerUps(int numPerType) {
+        for (PowerUp.Type type : PowerUp.Type.values()) {
+            for (int i = 0; i < numPerType; i++) {
+                int powerUp = PowerUp.spawnPowerUp(powerUps, type, random.positions());
+                powerUps.setSpeedY(powerUp, meteors.getSpeedY(0));
+            }
+        }
+    }
+
+    /**
+     * Changes of the game state since the last clearEvents, coalesced over all ticks
+     */
+    public GameEvents getEvents() {
+        return events;
+    }
+
+    public void clearEvents() {
+        events.clear();
+    }
+
+    /**
+     * Move the entities of the stores with at least threshold entities in parallel on the pool.
+     * The result of the simulation is the same as without threads.
+     * @param pool pool of the parallel update, null means that all entities are moved on the calling thread
+     */
+    public void setParallelUpdate(ForkJoinPool pool, int threshold) {
+        entityUpdater = pool == null ? new EntityUpdater() : new EntityUpdater(pool, threshold);
+    }
+
+    public GameConfig getConfig() {
+        return config;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getNumLives() {
+        return numLives;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getWeaponLevel() {
+        return weapon.getLevel();
+    }
+
+    /**
+     * Simulation time since the start of the game in milliseconds
+     */
+    public double getTime() {
+        return timers.getTime();
+    }
+
+    /**
+     * Scheduler of the timed events, new events of the game can be added to it
+     */
+    public TimingWheel getTimers() {
+        return timers;
+    }
+
+    /**
+     * Seed of the current game
+     */
+    public long getSeed() {
+        return random.getSeed();
+    }
+
+    /**
+     * Record the inputs of the games started after this call
+     */
+    public void setRecording(boolean isRecording) {
+        this.isRecording = isRecording;
+    }
+
+    /**
+     * Replay of the current game up to the current tick, null if the game was not recorded
+     */
+    public Replay getReplay() {
+        return recorder == null ? null : recorder.toReplay(tickCount);
+    }
+
+    /**
+     * Number of ticks since the start of the game
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Number of projectiles fired in the last tick
+     */
+    public int getProjectilesFired() {
+        return projectilesFired;
+    }
+
+    /**
+     * Number of exact collision checks (after the broadphase) in the last tick
+     */
+    public int getCollisionsTested() {
+        return collisionsTested;
+    }
+
+    public boolean isGameOver() {
+        return isGameOver;
+    }
+
+    /**
+     * Store with the only entity - the player ship
+     */
+    public EntityStore getShips() {
+        return ships;
+    }
+
+    public EntityStore getMeteors() {
+        return meteors;
+    }
+
+    public EntityStore getProjectiles() {
+        return projectiles;
+    }
+
+    public EntityStore getPowerUps() {
+        return powerUps;
+    }
+}
@@ -0,0 +1,91 @@
+package spaceinvaders.game;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event of one phase of a tick or a frame of the game loop.
+ * <p>
+ * The events are recorded only while a recording with the event enabled is running
+ * (e.g. java -XX:StartFlightRecording=filename=game.jfr ...). The game loop creates the events with beginPhase,
+ * which asks one shared event whether the event is enabled, so nothing is allocated while no recording runs.
+ * An event is not reused after commit, because the committed duration would be kept.
+ * See spaceinvaders.tools.PhaseProfile for the report of a recording.
+ */
+@Name(TickPhaseEvent.NAME)
+@Label("Tick Phase")
+@Category({"Space Invaders", "Game Loop"})
+@Description("Duration of one phase of the game loop with the number of entities")
+@StackTrace(false)
+public class TickPhaseEvent extends Event {
+    public static final String NAME = "spaceinvaders.TickPhase";
+
+    private static final TickPhaseEvent PROBE = new TickPhaseEvent(); //only asked isEnabled, never committed
+
+    //phases of a simulation tick
+    public static final String UPDATE_ITEMS = "updateItems";
+    public static final String TIMERS = "timers";
+    public static final String HANDLE_COLLISIONS = "handleCollisions";
+
+    //phases of a frame of the game
+    public static final String DRAW_ITEMS = "drawItems";
+    public static final String DELIVER_EVENTS = "deliverEvents";
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Tick")
+    @Description("Number of the tick since the start of the game")
+    long tick;
+
+    @Label("Meteors")
+    int meteors;
+
+    @Label("Projectiles")
+    int projectiles;
+
+    @Label("Power-ups")
+    int powerUps;
+
+    @Label("Projectiles Fired")
+    @Description("Projectiles fired in the tick so far")
+    int projectilesFired;
+
+    @Label("Collisions Tested")
+    @Description("Exact collision checks in the tick so far")
+    int collisionsTested;
+
+    /**
+     * Begin the event of a phase
+     * @return the new event or null if no recording has the event enabled
+     */
+    static TickPhaseEvent beginPhase() {
+        if (!PROBE.isEnabled())
+            return null;
+        TickPhaseEvent event = new TickPhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Fill the event from the simulation and commit it, if it is recorded
+     * @param event event returned by beginPhase, nothing is done if it is null
+     */
+    static void commitPhase(TickPhaseEvent event, String phase, Simulation simulation) {
+        if (event != null)
+            event.commit(phase, simulation);
+    }
+
+    private void commit(String phase, Simulation simulation) {
+        if (!shouldCommit())
+            return;
+
+        this.phase = phase;
+        tick = simulation.getTickCount();
+        meteors = simulation.getMeteors().size();
+        projectiles = simulation.getProjectiles().size();
+        powerUps = simulation.getPowerUps().size();
+        projectilesFired = simulation.getProjectilesFired();
+        collisionsTested = simulation.getCollisionsTested();
+        commit();
+    }
+}
@@ -0,0 +1,232 @@
+package spaceinvaders.game;
+
+/**
+ * Scheduler of the timed events of the simulation (hashed timing wheel).
+ * <p>
+ * Time is the simulation time in milliseconds, it is advanced only by advanceTo, which is called once per tick,
+ * so the events fire at tick boundaries and don't depend on the frame rate or the speed of the game.
+ * The wheel is divided into slots of the same duration (resolution), a timer is put in the slot of its deadline
+ * modulo the number of slots. Scheduling and cancelling are O(1): timers are linked in a list of the slot.
+ * Advancing checks only the slots of the passed time, a timer fires if its deadline has passed,
+ * timers of the later rounds of the wheel stay in the slot.
+ * <p>
+ * A repeating timer is rescheduled at its previous deadline plus the period (not the current time),
+ * so if a tick is longer than the period, the timer fires several times in the tick and the cadence doesn't drift.
+ * Timers that are due in the same slot fire in the order they were scheduled.
+ */
+public class TimingWheel {
+    /**
+     * Timer of the wheel, the same timer can be scheduled again after it fired or was cancelled,
+     * so repeating events don't allocate
+     */
+    public static final class Timer {
+        private final Runnable action;
+        private final double period; //0 if the timer fires once
+
+        private double deadline;
+        private TimingWheel wheel; //null if the timer is not scheduled
+        private int slot;
+        private Timer previous;
+        private Timer next;
+
+        /**
+         * Timer that fires once
+         */
+        public Timer(Runnable action) {
+            this(action, 0);
+        }
+
+        /**
+         * @param period time between the events of a repeating timer in milliseconds, 0 means that the timer fires once
+         */
+        public Timer(Runnable action, double period) {
+            if (period < 0)
+                throw new IllegalArgumentException("Period must not be negative: " + period);
+            this.action = action;
+            this.period = period;
+        }
+
+        public boolean isScheduled() {
+            return wheel != null;
+        }
+
+        /**
+         * Simulation time of the next event
+         */
+        public double getDeadline() {
+            return deadline;
+        }
+
+        public double getPeriod() {
+            return period;
+        }
+    }
+
+    private final Timer[] heads;
+    private final Timer[] tails;
+    private final int mask;
+    private final double resolution;
+
+    private double time;
+    private long currentSlot; //slot of the current time, not wrapped
+    private int size;
+
+    /**
+     * @param numSlots number of slots of the wheel, rounded up to a power of two
+     * @param resolution duration of one slot in milliseconds
+     */
+    public TimingWheel(int numSlots, double resolution) {
+        if (numSlots < 1)
+            throw new IllegalArgumentException("Number of slots must be positive: " + numSlots);
+        if (resolution <= 0)
+            throw new IllegalArgumentException("Resolution must be positive: " + resolution);
+
+        int capacity = Integer.highestOneBit(numSlots);
+        if (capacity < numSlots)
+            capacity <<= 1;
+        heads = new Timer[capacity];
+        tails = new Timer[capacity];
+        mask = capacity - 1;
+        this.resolution = resolution;
+    }
+
+    /**
+     * Schedule the timer to fire after the delay (0 means in the current or the next advance).
+     * If the timer is already scheduled, it is rescheduled.
+     */
+    public void schedule(Timer timer, double delay) {
+        if (timer.wheel != null)
+            cancel(timer);
+        insert(timer, time + Math.max(0, delay));
+    }
+
+    /**
+     * Create a timer and schedule it to fire once after the delay
+     */
+    public Timer schedule(Runnable action, double delay) {
+        Timer timer = new Timer(action);
+        schedule(timer, delay);
+        return timer;
+    }
+
+    /**
+     * Create a timer and schedule it to fire after the delay and then every period
+     */
+    public Timer scheduleRepeating(Runnable action, double delay, double period) {
+        if (period <= 0)
+            throw new IllegalArgumentException("Period must be positive: " + period);
+        Timer timer = new Timer(action, period);
+        schedule(timer, delay);
+        return timer;
+    }
+
+    /**
+     * Remove the timer from the wheel
+     * @return false if the timer was not scheduled in this wheel
+     */
+    public boolean cancel(Timer timer) {
+        if (timer.wheel != this)
+            return false;
+
+        if (timer.previous == null)
+            heads[timer.slot] = timer.next;
+        else
+            timer.previous.next = timer.next;
+        if (timer.next == null)
+            tails[timer.slot] = timer.previous;
+        else
+            timer.next.previous = timer.previous;
+
+        timer.previous = null;
+        timer.next = null;
+        timer.wheel = null;
+        size--;
+        return true;
+    }
+
+    /**
+     * Advance the time and fire all timers with the deadline up to the new time.
+     * Actions can schedule and cancel timers.
+     * @param newTime simulation time in milliseconds, not less than the current time
+     */
+    public void advanceTo(double newTime) {
+        if (newTime < time)
+            throw new IllegalArgumentException("Time can't go back: " + newTime + " < " + time);
+        time = newTime;
+
+        long targetSlot = slotOf(newTime);
+        while (true) {
+            if (size > 0)
+                fireSlot((int) (currentSlot & mask));
+            if (currentSlot >= targetSlot)
+                break;
+            currentSlot++;
+        }
+    }
+
+    /**
+     * Fire the due timers of the slot, after every fired timer the slot is checked from the start,
+     * because the action and the rescheduling can change the list
+     */
+    private void fireSlot(int slot) {
+        Timer timer = heads[slot];
+        while (timer != null) {
+            if (timer.deadline <= time) {
+                cancel(timer);
+                if (timer.period > 0)
+                    insert(timer, timer.deadline + timer.period);
+                timer.action.run();
+                timer = heads[slot];
+            }
+            else {
+                timer = timer.next;
+            }
+        }
+    }
+
+    private void insert(Timer timer, double deadline) {
+        int slot = (int) (Math.max(slotOf(deadline), currentSlot) & mask);
+
+        timer.deadline = deadline;
+        timer.wheel = this;
+        timer.slot = slot;
+        timer.next = null;
+        timer.previous = tails[slot];
+        if (tails[slot] == null)
+            heads[slot] = timer;
+        else
+            tails[slot].next = timer;
+        tails[slot] = timer;
+        size++;
+    }
+
+    private long slotOf(double time) {
+        return (long) Math.floor(time / resolution);
+    }
+
+    /**
+     * Cancel all timers and set the time to zero
+     */
+    public void clear() {
+        for (int slot = 0; slot < heads.length; slot++) {
+            while (heads[slot] != null)
+                cancel(heads[slot]);
+        }
+        time = 0;
+        currentSlot = 0;
+    }
+
+    /**
+     * Current simulation time in milliseconds
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * Number of scheduled timers
+     */
+    public int size() {
+        return size;
+    }
+}
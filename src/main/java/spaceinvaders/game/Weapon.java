@@ -4,16 +4,73 @@ import java.util.*;
 
 /**
  * Class representing the ship's weapon.
- * The weapon can be upgraded, currently there are four levels of weapon described below
+ * The weapon can be upgraded, by default there are four levels of weapon described below.
+ * Levels above the fourth are wider fans of double shots, they are used only if a higher maximum level is given.
+ * <p>
+ * Every level is compiled once into a pattern: flat arrays of the offsets, speeds and sizes of its projectiles.
+ * Firing copies the pattern into the projectile store, so it doesn't allocate.
  */
 public class Weapon {
-    //max level of the weapon
+    //max level of the default weapon
     private static final int MAX_LEVEL = 4;
 
+    //angle between the directions of the shots of the third and higher levels
+    private static final double ROTATION_ANGLE = 30;
+
+    //the fan of the shots of high levels is not wider than MAX_SPREAD_ANGLE to each side
+    private static final double MAX_SPREAD_ANGLE = 75;
+
+    /**
+     * Template of a single shot of a level: offset from the zero position of the weapon and direction
+     */
+    private record Shot(double offsetX, double angle) {
+    }
+
+    /**
+     * Projectiles of one level, relative to the zero position of the weapon, index is the projectile
+     */
+    private static class Pattern {
+        private final double[] offsetX;
+        private final double[] offsetY;
+        private final double[] speedX;
+        private final double[] speedY;
+        private final double[] width;
+        private final double[] height;
+        private final double[] rotation;
+
+        private Pattern(List<Shot> projectiles) {
+            int size = projectiles.size();
+            offsetX = new double[size];
+            offsetY = new double[size];
+            speedX = new double[size];
+            speedY = new double[size];
+            width = new double[size];
+            height = new double[size];
+            rotation = new double[size];
+
+            for (int i = 0; i < size; i++) {
+                Shot shot = projectiles.get(i);
+                offsetX[i] = shot.offsetX();
+                offsetY[i] = 0;
+                speedX[i] = Projectile.getShotSpeedX(shot.angle());
+                speedY[i] = Projectile.getShotSpeedY(shot.angle());
+                width[i] = Projectile.getShotWidth();
+                height[i] = Projectile.getShotHeight();
+                rotation[i] = shot.angle();
+            }
+        }
+
+        private int size() {
+            return offsetX.length;
+        }
+    }
+
     /**
-     * hash table that returns shots at the current weapon level
+     * Patterns of all levels, index is the level (index 0 is not used)
      */
-    private final Map<Integer, List<Sprite>> levelToProjectilesMap;
+    private final Pattern[] levelToPattern;
+
+    private final int maxLevel;
 
     //current level of the weapon
     private int currentLevel;
@@ -22,39 +79,49 @@ public class Weapon {
      * Create level one weapon
      */
     public Weapon() {
+        this(MAX_LEVEL);
+    }
+
+    /**
+     * Create level one weapon that can be upgraded up to the given level
+     */
+    public Weapon(int maxLevel) {
+        if (maxLevel < 1)
+            throw new IllegalArgumentException("Max level of the weapon must be positive: " + maxLevel);
+
+        this.maxLevel = maxLevel;
         currentLevel = 1;
-        levelToProjectilesMap = new HashMap<>();
 
-        initLevelOne();
-        initLevelTwo();
-        initLevelThree();
-        initLevelFour();
+        levelToPattern = new Pattern[maxLevel + 1];
+        for (int level = 1; level <= maxLevel; level++)
+            levelToPattern[level] = new Pattern(createLevel(level));
     }
 
     /**
      * Shoot a weapon of the current level
-     * @param ship a sprite that is used to calculate the position of the weapon
-     * @return list of projectiles fired
+     * @param weaponPosX x position of the weapon (the center of the ship)
+     * @param weaponPosY y position of the weapon (the top of the ship)
+     * @param projectiles store to which the fired projectiles are added
+     * @param projectileType type of the fired projectiles in the store
+     * @return number of projectiles fired
      */
-    public List<Sprite> fire(Sprite ship) {
-        List<Sprite> levelProjectiles = levelToProjectilesMap.get(currentLevel);
-
-        List<Sprite> firedProjectiles = new ArrayList<>();
-        for (Sprite shot: levelProjectiles) {
-            firedProjectiles.add(new Sprite(shot));
-        }
-
-        double weaponPosX = ship.getPosX() + ship.getWidth() / 2;
-        double weaponPosY = ship.getPosY();
+    public int fire(double weaponPosX, double weaponPosY, EntityStore projectiles, int projectileType) {
+        Pattern pattern = levelToPattern[currentLevel];
 
         /*
          * move all shots according to the position of the weapon
          * initially they were created relative to the zero position
          */
-        for (Sprite shot: firedProjectiles)
-            shot.setPos(shot.getPosX() + weaponPosX, shot.getPosY() + weaponPosY);
+        for (int i = 0; i < pattern.size(); i++) {
+            int shot = projectiles.add(projectileType);
+            projectiles.setPos(shot, pattern.offsetX[i] + weaponPosX, pattern.offsetY[i] + weaponPosY);
+            projectiles.setSpeedX(shot, pattern.speedX[i]);
+            projectiles.setSpeedY(shot, pattern.speedY[i]);
+            projectiles.setSize(shot, pattern.width[i], pattern.height[i]);
+            projectiles.setRotationAngle(shot, pattern.rotation[i]);
+        }
 
-        return firedProjectiles;
+        return pattern.size();
     }
 
     /**
@@ -62,89 +129,106 @@ public class Weapon {
      * If it is already the maximum level nothing happens.
      */
     public void upgrade() {
-        if (currentLevel != MAX_LEVEL)
+        if (currentLevel < maxLevel)
             currentLevel++;
     }
 
+    public int getLevel() {
+        return currentLevel;
+    }
+
+    public int getMaxLevel() {
+        return maxLevel;
+    }
+
     /**
-     * Create sprite of the single shot at zero position
-     * Sprite moves at a given angle (relative to y-axis)
+     * Number of projectiles fired by one shot of the current level
      */
-    private Sprite createSingleShot(double angle) {
-        Sprite shot = new Projectile(angle);
-        shot.setPosX(-shot.getWidth() / 2);
-        return shot;
+    public int getProjectilesPerShot() {
+        return levelToPattern[currentLevel].size();
+    }
+
+    private List<Shot> createLevel(int level) {
+        return switch (level) {
+            case 1 -> createLevelOne();
+            case 2 -> createLevelTwo();
+            case 3 -> createLevelThree();
+            default -> createFan(level - 1);
+        };
+    }
+
+    /**
+     * Create the single shot at zero position
+     * Shot moves at a given angle (relative to y-axis)
+     */
+    private Shot createSingleShot(double angle) {
+        return new Shot(-Projectile.getShotWidth() / 2, angle);
     }
 
     /**
-     * Create sprites of the double shot at zero position
-     * Sprites moves at a given angle (relative to y-axis)
+     * Create the double shot at zero position
+     * Shots move at a given angle (relative to y-axis)
      */
-    private List<Sprite> createDoubleShot(double angle) {
-        List<Sprite> shots = new ArrayList<>();
+    private List<Shot> createDoubleShot(double angle) {
+        List<Shot> shots = new ArrayList<>();
 
         //create left shot
-        Sprite leftShot = createSingleShot(angle);
-        leftShot.setPosX(-leftShot.getWidth());
-        shots.add(leftShot);
+        shots.add(new Shot(-Projectile.getShotWidth(), angle));
 
         //create right shot
-        Sprite rightShot = createSingleShot(angle);
-        rightShot.setPosX(0);
-        shots.add(rightShot);
+        shots.add(new Shot(0, angle));
 
         return shots;
     }
 
     /**
-     * The first level is one sprite that moves vertically upward
-     * Sprites are created relative to the zero position of the weapon
+     * The first level is one shot that moves vertically upward
+     * Shots are created relative to the zero position of the weapon
      */
-    private void initLevelOne() {
-        List<Sprite> projectiles = List.of(createSingleShot(0));
-        levelToProjectilesMap.put(1, projectiles);
+    private List<Shot> createLevelOne() {
+        return List.of(createSingleShot(0));
     }
 
     /**
-     * The second level is two sprites that move vertically upward
-     * Sprites are created relative to the zero position of the weapon
+     * The second level is two shots that move vertically upward
+     * Shots are created relative to the zero position of the weapon
      */
-    private void initLevelTwo() {
-        List<Sprite> projectiles = createDoubleShot(0);
-        levelToProjectilesMap.put(2, projectiles);
+    private List<Shot> createLevelTwo() {
+        return createDoubleShot(0);
     }
 
     /**
-     * The third level is three sprites directed at an angle of 30 degrees to each other
-     * Sprites are created relative to the zero position of the weapon
+     * The third level is three shots directed at an angle of 30 degrees to each other
+     * Shots are created relative to the zero position of the weapon
      */
-    private void initLevelThree() {
-        final double ROTATION_ANGLE = 30;
-
-        List<Sprite> projectiles = new ArrayList<>();
+    private List<Shot> createLevelThree() {
+        List<Shot> projectiles = new ArrayList<>();
 
         for (double angle = -ROTATION_ANGLE; Double.compare(angle, ROTATION_ANGLE) != 1; angle += ROTATION_ANGLE) {
-            Sprite shot = createSingleShot(angle);
+            Shot shot = createSingleShot(angle);
             projectiles.add(shot);
         }
 
-        levelToProjectilesMap.put(3, projectiles);
+        return projectiles;
     }
 
     /**
-     * The fourth level - six sprites, two on each side
-     * Sprites are created relative to the zero position of the weapon
+     * The fourth and higher levels - a fan of double shots in the given number of directions.
+     * The fourth level is three directions at an angle of 30 degrees to each other (six shots, two on each side),
+     * every next level adds one direction, when the fan becomes too wide the angle between directions decreases.
+     * Shots are created relative to the zero position of the weapon
      */
-    private void initLevelFour() {
-        final double ROTATION_ANGLE = 30;
+    private List<Shot> createFan(int numDirections) {
+        double step = Math.min(ROTATION_ANGLE, 2 * MAX_SPREAD_ANGLE / (numDirections - 1));
+        double firstAngle = -step * (numDirections - 1) / 2;
 
-        List<Sprite> projectiles = new ArrayList<>();
+        List<Shot> projectiles = new ArrayList<>();
 
-        for (double angle = -ROTATION_ANGLE; Double.compare(angle, ROTATION_ANGLE) != 1; angle += ROTATION_ANGLE) {
-            List<Sprite> doubleShot = createDoubleShot(angle);
+        for (int direction = 0; direction < numDirections; direction++) {
+            List<Shot> doubleShot = createDoubleShot(firstAngle + direction * step);
             projectiles.addAll(doubleShot);
         }
 
-        levelToProjectilesMap.put(4, projectiles);
+        return projectiles;
     }
-}
\ No newline at end of file
+}
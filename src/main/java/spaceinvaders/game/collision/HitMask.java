@@ -0,0 +1,153 @@
+package spaceinvaders.game.collision;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Bitmask of the opaque pixels of an image rotated by a certain angle.
+ * <p>
+ * The image is rotated around its center in the same way as RenderBatch draws it.
+ * The mask covers the bounding box of the rotated image, its size is stored relative to the size of the sprite
+ * (extentX and extentY, both are 1 for an unrotated image), so one mask can be used for sprites of any size.
+ * A set cell means that the rotated image is opaque at the center of the cell.
+ */
+public class HitMask {
+    private static final int ALPHA_THRESHOLD = 0x40;
+
+    private final int columns;
+    private final int rows;
+    private final long[] bits;
+    private final double extentX;
+    private final double extentY;
+
+    private HitMask(int columns, int rows, double extentX, double extentY) {
+        this.columns = columns;
+        this.rows = rows;
+        this.extentX = extentX;
+        this.extentY = extentY;
+        bits = new long[(columns * rows + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    /**
+     * Build the mask of the image rotated by the angle
+     * @param argb pixels of the image in the ARGB format, row by row
+     * @param angle rotation angle in degrees, counterclockwise (as in EntityStore)
+     * @param resolution number of cells along the longest side of the mask
+     */
+    public static HitMask build(int[] argb, int imageWidth, int imageHeight, double angle, int resolution) {
+        double radians = Math.toRadians(angle);
+        double cos = Math.cos(radians);
+        double sin = Math.sin(radians);
+
+        //bounding box of the rotated image in pixels
+        double boxWidth = Math.abs(imageWidth * cos) + Math.abs(imageHeight * sin);
+        double boxHeight = Math.abs(imageWidth * sin) + Math.abs(imageHeight * cos);
+
+        double cellSize = Math.max(boxWidth, boxHeight) / resolution;
+        int columns = Math.max(1, (int) Math.round(boxWidth / cellSize));
+        int rows = Math.max(1, (int) Math.round(boxHeight / cellSize));
+
+        HitMask mask = new HitMask(columns, rows, boxWidth / imageWidth, boxHeight / imageHeight);
+
+        /*
+         * RenderBatch rotates the canvas by -angle, so the screen point (x, y) relative to the center
+         * is the image point (x * cos - y * sin, x * sin + y * cos)
+         */
+        for (int row = 0; row < rows; row++) {
+            double y = (row + 0.5) * boxHeight / rows - boxHeight / 2;
+            for (int column = 0; column < columns; column++) {
+                double x = (column + 0.5) * boxWidth / columns - boxWidth / 2;
+
+                int imageX = (int) Math.floor(x * cos - y * sin + imageWidth / 2.0);
+                int imageY = (int) Math.floor(x * sin + y * cos + imageHeight / 2.0);
+                if (imageX < 0 || imageY < 0 || imageX >= imageWidth || imageY >= imageHeight)
+                    continue;
+
+                int alpha = argb[imageY * imageWidth + imageX] >>> 24;
+                if (alpha >= ALPHA_THRESHOLD)
+                    mask.set(row * columns + column);
+            }
+        }
+
+        return mask;
+    }
+
+    /**
+     * Write the mask in the format of read
+     */
+    public void write(DataOutput output) throws IOException {
+        output.writeInt(columns);
+        output.writeInt(rows);
+        output.writeDouble(extentX);
+        output.writeDouble(extentY);
+        for (long word : bits)
+            output.writeLong(word);
+    }
+
+    /**
+     * Read a mask written by write, the position of the buffer is moved to the end of the mask
+     */
+    public static HitMask read(ByteBuffer buffer) {
+        int columns = buffer.getInt();
+        int rows = buffer.getInt();
+        double extentX = buffer.getDouble();
+        double extentY = buffer.getDouble();
+
+        HitMask mask = new HitMask(columns, rows, extentX, extentY);
+        for (int i = 0; i < mask.bits.length; i++)
+            mask.bits[i] = buffer.getLong();
+        return mask;
+    }
+
+    /**
+     * Move the position of the buffer to the end of the mask without reading it
+     */
+    public static void skip(ByteBuffer buffer) {
+        int columns = buffer.getInt();
+        int rows = buffer.getInt();
+        int numWords = (columns * rows + Long.SIZE - 1) / Long.SIZE;
+        buffer.position(buffer.position() + 2 * Double.BYTES + numWords * Long.BYTES);
+    }
+
+    /**
+     * Check if the point is opaque
+     * @param relativeX x coordinate relative to the left side of the mask, from 0 to 1
+     * @param relativeY y coordinate relative to the top side of the mask, from 0 to 1
+     */
+    public boolean isSet(double relativeX, double relativeY) {
+        int column = (int) (relativeX * columns);
+        int row = (int) (relativeY * rows);
+        if (column < 0 || row < 0 || column >= columns || row >= rows)
+            return false;
+
+        int bit = row * columns + column;
+        return (bits[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Width of the mask relative to the width of the sprite
+     */
+    public double getExtentX() {
+        return extentX;
+    }
+
+    /**
+     * Height of the mask relative to the height of the sprite
+     */
+    public double getExtentY() {
+        return extentY;
+    }
+
+    private void set(int bit) {
+        bits[bit >>> 6] |= 1L << bit;
+    }
+}
@@ -0,0 +1,68 @@
+package spaceinvaders.game.collision;
+
+import spaceinvaders.AssetPack;
+import spaceinvaders.PngImage;
+import spaceinvaders.Resource;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Cache of the hit masks of image resources.
+ * <p>
+ * The masks of an image are built once, when the image is requested for the first time,
+ * for all rotation buckets (every ROTATION_STEP degrees). After that, get is a lookup without allocation.
+ * The pixels are decoded without JavaFX (PngImage), so the masks are the same in the headless simulation.
+ * If the image is in the default asset pack with masks (only the colliding images have them)
+ * and the pack was baked with the same parameters, the masks are taken from the pack instead.
+ */
+public class HitMaskCache {
+    public static final int ROTATION_STEP = 5; //in degrees
+    public static final int MASK_RESOLUTION = 32;
+    private static final int NUM_BUCKETS = 360 / ROTATION_STEP;
+
+    private final Map<Resource, HitMask[]> resourceToMasks = new EnumMap<>(Resource.class);
+
+    /**
+     * Get the mask of the image rotated by the angle, the angle is rounded to the nearest rotation bucket
+     */
+    public HitMask get(Resource resource, double angle) {
+        HitMask[] masks = resourceToMasks.get(resource);
+        if (masks == null) {
+            masks = loadMasks(resource);
+            resourceToMasks.put(resource, masks);
+        }
+
+        int bucket = (int) Math.round(angle / ROTATION_STEP) % NUM_BUCKETS;
+        if (bucket < 0)
+            bucket += NUM_BUCKETS;
+        return masks[bucket];
+    }
+
+    public void clear() {
+        resourceToMasks.clear();
+    }
+
+    private static HitMask[] loadMasks(Resource resource) {
+        AssetPack pack = AssetPack.getDefault();
+        if (pack != null && pack.contains(resource) && pack.getMaskRotationStep() == ROTATION_STEP
+                && pack.getMaskResolution() == MASK_RESOLUTION) {
+            HitMask[] masks = pack.getHitMasks(resource);
+            if (masks != null)
+                return masks;
+        }
+        return buildMasks(PngImage.of(resource));
+    }
+
+    /**
+     * Build the masks of the image for all rotation buckets
+     */
+    public static HitMask[] buildMasks(PngImage image) {
+        HitMask[] masks = new HitMask[NUM_BUCKETS];
+        for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+            masks[bucket] = HitMask.build(image.getPixels(), image.getWidth(), image.getHeight(),
+                    bucket * ROTATION_STEP, MASK_RESOLUTION);
+        }
+        return masks;
+    }
+}
@@ -0,0 +1,73 @@
+package spaceinvaders.game.collision;
+
+/**
+ * Exact collision check of two sprites, used after the broadphase (SpatialGrid) has found a candidate pair.
+ * <p>
+ * Sprites are given by the normalized position and size (as in EntityStore) and the hit mask of their rotated image.
+ * First, the bounding boxes of the rotated images are compared,
+ * then the overlapping part of the boxes is sampled with the step of the finer mask.
+ * A null mask means that the sprite is a solid unrotated rectangle.
+ * The check doesn't allocate.
+ */
+public class Narrowphase {
+    private Narrowphase() {
+    }
+
+    public static boolean collide(double posX1, double posY1, double width1, double height1, HitMask mask1,
+                                  double posX2, double posY2, double width2, double height2, HitMask mask2) {
+        //bounding boxes of the rotated images, the rotation is around the center of the sprite
+        double boxWidth1 = mask1 == null ? width1 : width1 * mask1.getExtentX();
+        double boxHeight1 = mask1 == null ? height1 : height1 * mask1.getExtentY();
+        double boxX1 = posX1 + (width1 - boxWidth1) / 2;
+        double boxY1 = posY1 + (height1 - boxHeight1) / 2;
+
+        double boxWidth2 = mask2 == null ? width2 : width2 * mask2.getExtentX();
+        double boxHeight2 = mask2 == null ? height2 : height2 * mask2.getExtentY();
+        double boxX2 = posX2 + (width2 - boxWidth2) / 2;
+        double boxY2 = posY2 + (height2 - boxHeight2) / 2;
+
+        //early-out by the bounding boxes
+        double left = Math.max(boxX1, boxX2);
+        double top = Math.max(boxY1, boxY2);
+        double right = Math.min(boxX1 + boxWidth1, boxX2 + boxWidth2);
+        double bottom = Math.min(boxY1 + boxHeight1, boxY2 + boxHeight2);
+        if (left >= right || top >= bottom)
+            return false;
+
+        if (mask1 == null && mask2 == null)
+            return true;
+
+        //sample the overlap with the step of the finer mask
+        double stepX = Double.MAX_VALUE;
+        double stepY = Double.MAX_VALUE;
+        if (mask1 != null) {
+            stepX = boxWidth1 / mask1.getColumns();
+            stepY = boxHeight1 / mask1.getRows();
+        }
+        if (mask2 != null) {
+            stepX = Math.min(stepX, boxWidth2 / mask2.getColumns());
+            stepY = Math.min(stepY, boxHeight2 / mask2.getRows());
+        }
+
+        int samplesX = Math.max(1, (int) Math.ceil((right - left) / stepX));
+        int samplesY = Math.max(1, (int) Math.ceil((bottom - top) / stepY));
+        stepX = (right - left) / samplesX;
+        stepY = (bottom - top) / samplesY;
+
+        for (int i = 0; i < samplesY; i++) {
+            double y = top + (i + 0.5) * stepY;
+            for (int j = 0; j < samplesX; j++) {
+                double x = left + (j + 0.5) * stepX;
+                if (isSet(mask1, (x - boxX1) / boxWidth1, (y - boxY1) / boxHeight1)
+                        && isSet(mask2, (x - boxX2) / boxWidth2, (y - boxY2) / boxHeight2))
+                    return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isSet(HitMask mask, double relativeX, double relativeY) {
+        return mask == null || mask.isSet(relativeX, relativeY);
+    }
+}
@@ -0,0 +1,206 @@
+package spaceinvaders.game.collision;
+
+import spaceinvaders.game.EntityStore;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the normalized 1 by 1 game space, used as a collision broadphase.
+ * <p>
+ * Every entity of the store is placed in the cell that contains its top-left corner.
+ * Cells are intrusive doubly linked lists of entity indices, so the grid does not allocate after warming up.
+ * The update function is incremental: only entities that moved to another cell are relinked.
+ * Entities which are entirely outside the canvas (for example, meteors waiting above the canvas) are not placed in the grid.
+ * Entities may be rotated around their center (see HitMask), so the reach of an entity is its diagonal, not its size.
+ * <p>
+ * The query function collects the indices of entities whose cells can contain an entity intersecting the given rectangle.
+ * These candidates then should be checked by the exact (narrowphase) collision check.
+ */
+public class SpatialGrid {
+    private static final int NOT_IN_GRID = -1;
+    private static final int NONE = -1;
+
+    private final int columns;
+    private final int rows;
+
+    private final int[] cellHead;
+
+    //per entity lists, index is the entity index in the store
+    private int[] entityCell;
+    private int[] next;
+    private int[] prev;
+    private int trackedSize;
+
+    //the largest diagonal of the entities in the grid, used to extend the query rectangle
+    private double maxDiagonal;
+
+    //result of the last query
+    private int[] candidates;
+    private int numCandidates;
+
+    public SpatialGrid(int columns, int rows) {
+        if (columns <= 0 || rows <= 0)
+            throw new IllegalArgumentException("Grid size must be positive: " + columns + "x" + rows);
+
+        this.columns = columns;
+        this.rows = rows;
+
+        cellHead = new int[columns * rows];
+        Arrays.fill(cellHead, NONE);
+
+        entityCell = new int[0];
+        next = new int[0];
+        prev = new int[0];
+        candidates = new int[16];
+    }
+
+    /**
+     * Bring the grid in line with the store.
+     * Should be called after entities have been moved, added or removed.
+     */
+    public void update(EntityStore store) {
+        int size = store.size();
+        ensureCapacity(size);
+
+        //entities that no longer exist
+        for (int index = size; index < trackedSize; index++)
+            unlink(index);
+
+        //new entities are not in the grid yet
+        for (int index = trackedSize; index < size; index++)
+            entityCell[index] = NOT_IN_GRID;
+        trackedSize = size;
+
+        for (int index = 0; index < size; index++)
+            update(store, index);
+    }
+
+    /**
+     * Bring one entity in line with the store, used when the entity is moved during collision handling
+     */
+    public void update(EntityStore store, int index) {
+        int cell = cellOf(store, index);
+        if (cell == entityCell[index])
+            return;
+
+        unlink(index);
+        if (cell != NOT_IN_GRID) {
+            link(index, cell);
+            maxDiagonal = Math.max(maxDiagonal, Math.hypot(store.getWidth(index), store.getHeight(index)));
+        }
+    }
+
+    /**
+     * Remove all entities from the grid
+     */
+    public void clear() {
+        Arrays.fill(cellHead, NONE);
+        trackedSize = 0;
+        maxDiagonal = 0;
+        numCandidates = 0;
+    }
+
+    /**
+     * Collect the entities that may intersect the rectangle.
+     * @return number of candidates, the candidates are available through getCandidate
+     */
+    public int query(double posX, double posY, double width, double height) {
+        numCandidates = 0;
+
+        /*
+         * entities are placed by the top-left corner, a rotated entity lies inside the circle around its center
+         * with the diameter equal to the diagonal, so it can reach the rectangle from the left, right, upper and lower cells
+         */
+        int fromColumn = toColumn(posX - maxDiagonal);
+        int toColumn = toColumn(posX + width + maxDiagonal / 2);
+        int fromRow = toRow(posY - maxDiagonal);
+        int toRow = toRow(posY + height + maxDiagonal / 2);
+
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                for (int index = cellHead[row * columns + column]; index != NONE; index = next[index]) {
+                    if (numCandidates == candidates.length)
+                        candidates = Arrays.copyOf(candidates, numCandidates * 2);
+                    candidates[numCandidates++] = index;
+                }
+            }
+        }
+
+        return numCandidates;
+    }
+
+    /**
+     * Get the candidate of the last query
+     */
+    public int getCandidate(int i) {
+        return candidates[i];
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    private int cellOf(EntityStore store, int index) {
+        double posX = store.getPosX(index);
+        double posY = store.getPosY(index);
+        double width = store.getWidth(index);
+        double height = store.getHeight(index);
+
+        //entity can't intersect the canvas even if it is rotated
+        double reach = (Math.hypot(width, height) - Math.min(width, height)) / 2;
+        if (posX - reach > 1 || posY - reach > 1 || posX + width + reach < 0 || posY + height + reach < 0)
+            return NOT_IN_GRID;
+
+        return toRow(posY) * columns + toColumn(posX);
+    }
+
+    private int toColumn(double posX) {
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor(posX * columns)));
+    }
+
+    private int toRow(double posY) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor(posY * rows)));
+    }
+
+    private void link(int index, int cell) {
+        int head = cellHead[cell];
+        next[index] = head;
+        prev[index] = NONE;
+        if (head != NONE)
+            prev[head] = index;
+        cellHead[cell] = index;
+        entityCell[index] = cell;
+    }
+
+    private void unlink(int index) {
+        int cell = entityCell[index];
+        if (cell == NOT_IN_GRID)
+            return;
+
+        if (prev[index] != NONE)
+            next[prev[index]] = next[index];
+        else
+            cellHead[cell] = next[index];
+
+        if (next[index] != NONE)
+            prev[next[index]] = prev[index];
+
+        entityCell[index] = NOT_IN_GRID;
+    }
+
+    private void ensureCapacity(int size) {
+        if (entityCell.length >= size)
+            return;
+
+        int capacity = Math.max(size, entityCell.length * 2);
+        int oldCapacity = entityCell.length;
+        entityCell = Arrays.copyOf(entityCell, capacity);
+        Arrays.fill(entityCell, oldCapacity, capacity, NOT_IN_GRID);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+    }
+}
@@ -0,0 +1,16 @@
+package spaceinvaders.game.render;
+
+import javafx.scene.image.Image;
+
+/**
+ * Rectangle of an image that is drawn as a sprite, in pixels of the image.
+ * A region is the whole image or a sprite of the texture atlas (see SpriteAtlas).
+ */
+public record ImageRegion(Image image, double x, double y, double width, double height) {
+    /**
+     * Region of the whole image
+     */
+    public static ImageRegion of(Image image) {
+        return new ImageRegion(image, 0, 0, image.getWidth(), image.getHeight());
+    }
+}
@@ -0,0 +1,614 @@
+package spaceinvaders.game.render;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.transform.Affine;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Collects the sprites of a frame and draws them on the canvas in batches.
+ * <p>
+ * Sprites are given in the normalized coordinates (the canvas is 1 by 1, as in EntityStore).
+ * Sprites that are entirely outside the canvas are culled when they are added.
+ * A sprite is a region of an image (see ImageRegion), sprites of the texture atlas (see SpriteAtlas) share one image.
+ * On flush the sprites are sorted by layer, then by image, so the sprites with the same image are drawn one after
+ * another. Unrotated sprites are drawn without touching the transform, rotated sprites get one setTransform each
+ * instead of the save/translate/rotate/translate/restore stack, and the transform is restored once per batch.
+ * <p>
+ * If a bitmap cache is set, every sprite is drawn as an unscaled blit of its pre-rotated variant (see SpriteBitmapCache)
+ * and the transform is not changed at all. The variants are rendered at the pixel scale (see setPixelScale),
+ * so they stay sharp on HiDPI screens. A sprite whose variant is not rendered yet (the render time budget
+ * of the cache is spent) is scaled and rotated when it is drawn, and the whole canvas is redrawn in the next frame.
+ * <p>
+ * If the dirty area threshold is set, only the changed parts of the canvas are redrawn. The sprites of the frame
+ * are matched with the sprites of the previous frame, a sprite that is not in the other frame (it moved, rotated,
+ * appeared or disappeared) makes its bounds dirty. Overlapping dirty rectangles are merged, then every rectangle
+ * is cleared and the sprites that intersect it are drawn clipped to it. If the dirty area is larger than
+ * the threshold, the whole canvas is redrawn.
+ * <p>
+ * Inside a layer the order of the images is not defined, so sprites that must be drawn over others
+ * should be in a higher layer.
+ */
+public class RenderBatch {
+    private static final int INITIAL_CAPACITY = 64;
+
+    //bits of the sort key: layer, image, rotation flag, order of adding
+    private static final int SEQUENCE_BITS = 24;
+    private static final int ROTATED_SHIFT = SEQUENCE_BITS;
+    private static final int IMAGE_SHIFT = ROTATED_SHIFT + 1;
+    private static final int IMAGE_BITS = 16;
+    private static final int LAYER_SHIFT = IMAGE_SHIFT + IMAGE_BITS;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int MAX_LAYER = (1 << (Long.SIZE - 1 - LAYER_SHIFT)) - 1;
+
+    //dirty regions
+    private static final int MAX_DIRTY_RECTS = 64; //with more merged rectangles the whole canvas is redrawn
+    private static final int BOUNDS_PADDING = 1; //in pixels, covers the smoothed edges and the rounding of the blits
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Queued sprites of a frame, index is the order of adding
+     */
+    private static final class Frame {
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private ImageRegion[] regions = new ImageRegion[INITIAL_CAPACITY];
+        private int[] layers = new int[INITIAL_CAPACITY];
+        private double[] posX = new double[INITIAL_CAPACITY];
+        private double[] posY = new double[INITIAL_CAPACITY];
+        private double[] width = new double[INITIAL_CAPACITY];
+        private double[] height = new double[INITIAL_CAPACITY];
+        private double[] rotation = new double[INITIAL_CAPACITY];
+
+        //only with dirty regions: hashes of the sprites with the index in the low bits (sorted on flush),
+        //bounds on the canvas in pixels (minX, minY, maxX, maxY of every sprite)
+        private long[] signatures = new long[INITIAL_CAPACITY];
+        private int[] bounds = new int[4 * INITIAL_CAPACITY];
+        private int size;
+
+        private void grow() {
+            if (size > SEQUENCE_MASK)
+                throw new IllegalStateException("Too many sprites in the batch");
+            int capacity = 2 * keys.length;
+            keys = Arrays.copyOf(keys, capacity);
+            regions = Arrays.copyOf(regions, capacity);
+            layers = Arrays.copyOf(layers, capacity);
+            posX = Arrays.copyOf(posX, capacity);
+            posY = Arrays.copyOf(posY, capacity);
+            width = Arrays.copyOf(width, capacity);
+            height = Arrays.copyOf(height, capacity);
+            rotation = Arrays.copyOf(rotation, capacity);
+            signatures = Arrays.copyOf(signatures, capacity);
+            bounds = Arrays.copyOf(bounds, 4 * capacity);
+        }
+
+        private long hashAt(int i) {
+            return signatures[i] & ~SEQUENCE_MASK;
+        }
+
+        private int spriteAt(int i) {
+            return (int) (signatures[i] & SEQUENCE_MASK);
+        }
+
+        private boolean isSameSprite(int sprite, Frame other, int otherSprite) {
+            return regions[sprite] == other.regions[otherSprite] && layers[sprite] == other.layers[otherSprite]
+                    && posX[sprite] == other.posX[otherSprite] && posY[sprite] == other.posY[otherSprite]
+                    && width[sprite] == other.width[otherSprite] && height[sprite] == other.height[otherSprite]
+                    && rotation[sprite] == other.rotation[otherSprite];
+        }
+    }
+
+    private final Canvas canvas;
+
+    /**
+     * Pre-scaled and pre-rotated images, null if the images are scaled and rotated when they are drawn
+     */
+    private SpriteBitmapCache bitmapCache;
+
+    /**
+     * Screen pixels per canvas pixel, the size of the cached variants
+     */
+    private double pixelScale = 1;
+
+    /**
+     * Every image gets an id, the id is a part of the sort key
+     */
+    private final Map<Image, Integer> imageToId = new IdentityHashMap<>();
+
+    /**
+     * Regions of the whole images added without a region, so every image has one region object
+     */
+    private final Map<Image, ImageRegion> imageToRegion = new IdentityHashMap<>();
+
+    //sprites of the frame being queued and of the last drawn frame, swapped on flush
+    private Frame frame = new Frame();
+    private Frame previousFrame = new Frame();
+    private int culledSize; //culled since the last flush
+
+    /**
+     * Largest part of the canvas that is redrawn as dirty rectangles, 0 means that the whole canvas is always redrawn
+     */
+    private double dirtyAreaThreshold;
+
+    //merged dirty rectangles of the frame (minX, minY, maxX, maxY of every rectangle), they don't overlap
+    private final int[] dirtyRects = new int[4 * MAX_DIRTY_RECTS];
+    private int dirtyRectCount;
+
+    //the canvas doesn't show the previous frame (the drawing settings or the canvas size changed)
+    private boolean isCanvasInvalid = true;
+    private boolean hasUncachedSprites; //some variants were not rendered yet, they are drawn in the next frame
+    private double lastCanvasWidth;
+    private double lastCanvasHeight;
+
+    //transform of the canvas before the flush, rotated sprites are drawn relative to it
+    private final Affine baseTransform = new Affine();
+
+    //statistics of the last frame
+    private int culledCount;
+    private int drawnCount;
+    private int batchCount;
+    private long redrawnArea;
+
+    public RenderBatch(Canvas canvas) {
+        this.canvas = canvas;
+    }
+
+    /**
+     * Set the cache of the pre-scaled and pre-rotated images, null to scale and rotate the images when drawing
+     */
+    public void setBitmapCache(SpriteBitmapCache bitmapCache) {
+        this.bitmapCache = bitmapCache;
+        isCanvasInvalid = true;
+    }
+
+    /**
+     * Set the number of screen pixels per canvas pixel (the output scale of a HiDPI screen),
+     * the cached variants are rendered with this number of pixels per canvas pixel
+     */
+    public void setPixelScale(double pixelScale) {
+        if (pixelScale <= 0)
+            throw new IllegalArgumentException("Pixel scale must be positive: " + pixelScale);
+        if (pixelScale != this.pixelScale)
+            isCanvasInvalid = true;
+        this.pixelScale = pixelScale;
+    }
+
+    /**
+     * Redraw only the changed parts of the canvas while they are at most the part of the canvas area
+     * @param dirtyAreaThreshold from 0 to 1, 0 means that the whole canvas is redrawn on every flush
+     */
+    public void setDirtyAreaThreshold(double dirtyAreaThreshold) {
+        if (dirtyAreaThreshold < 0 || dirtyAreaThreshold > 1)
+            throw new IllegalArgumentException("Dirty area threshold must be from 0 to 1: " + dirtyAreaThreshold);
+        this.dirtyAreaThreshold = dirtyAreaThreshold;
+        isCanvasInvalid = true;
+    }
+
+    /**
+     * Redraw the whole canvas on the next flush, needed when the canvas was drawn or cleared outside the batch
+     */
+    public void invalidate() {
+        isCanvasInvalid = true;
+    }
+
+    /**
+     * Queue the whole image for drawing, the sprite is skipped if it is entirely outside the canvas
+     * @param layer sprites of lower layers are drawn first, from 0 to MAX_LAYER
+     * @param rotationAngle in degrees, counterclockwise around the center of the sprite (as in EntityStore)
+     */
+    public void add(int layer, Image image, double posX, double posY, double width, double height,
+                    double rotationAngle) {
+        ImageRegion region = imageToRegion.get(image);
+        if (region == null) {
+            region = ImageRegion.of(image);
+            imageToRegion.put(image, region);
+        }
+        add(layer, region, posX, posY, width, height, rotationAngle);
+    }
+
+    /**
+     * Queue the region of an image for drawing, the sprite is skipped if it is entirely outside the canvas
+     * @param layer sprites of lower layers are drawn first, from 0 to MAX_LAYER
+     * @param rotationAngle in degrees, counterclockwise around the center of the sprite (as in EntityStore)
+     */
+    public void add(int layer, ImageRegion region, double posX, double posY, double width, double height,
+                    double rotationAngle) {
+        if (layer < 0 || layer > MAX_LAYER)
+            throw new IllegalArgumentException("Layer out of range: " + layer);
+
+        boolean isRotated = rotationAngle % 360 != 0;
+        if (isOutsideCanvas(posX, posY, width, height, isRotated)) {
+            culledSize++;
+            return;
+        }
+
+        Frame frame = this.frame;
+        int size = frame.size;
+        if (size == frame.keys.length)
+            frame.grow();
+
+        frame.keys[size] = (long) layer << LAYER_SHIFT | (long) imageId(region.image()) << IMAGE_SHIFT
+                | (isRotated ? 1L : 0L) << ROTATED_SHIFT | size;
+        frame.regions[size] = region;
+        frame.layers[size] = layer;
+        frame.posX[size] = posX;
+        frame.posY[size] = posY;
+        frame.width[size] = width;
+        frame.height[size] = height;
+        frame.rotation[size] = rotationAngle;
+        frame.size++;
+    }
+
+    /**
+     * Clear the canvas (entirely or only the dirty rectangles), draw all queued sprites and clear the queue
+     */
+    public void flush() {
+        GraphicsContext graphicsContext = canvas.getGraphicsContext2D();
+        double canvasWidth = canvas.getWidth();
+        double canvasHeight = canvas.getHeight();
+        graphicsContext.getTransform(baseTransform);
+        if (bitmapCache != null)
+            bitmapCache.startFrame();
+        hasUncachedSprites = false;
+
+        Arrays.sort(frame.keys, 0, frame.size);
+
+        drawnCount = 0;
+        culledCount = culledSize;
+        batchCount = 0;
+        if (dirtyAreaThreshold > 0 && collectDirtyRects(canvasWidth, canvasHeight)) {
+            redrawnArea = 0;
+            for (int rect = 0; rect < dirtyRectCount; rect++) {
+                int minX = dirtyRects[4 * rect];
+                int minY = dirtyRects[4 * rect + 1];
+                int width = dirtyRects[4 * rect + 2] - minX;
+                int height = dirtyRects[4 * rect + 3] - minY;
+                redrawnArea += (long) width * height;
+
+                //the sprites that cross the border are clipped, the pixels outside are already drawn
+                graphicsContext.save();
+                graphicsContext.beginPath();
+                graphicsContext.rect(minX, minY, width, height);
+                graphicsContext.clip();
+                graphicsContext.clearRect(minX, minY, width, height);
+                drawSprites(graphicsContext, canvasWidth, canvasHeight, rect);
+                graphicsContext.restore();
+            }
+        }
+        else {
+            dirtyRectCount = 0;
+            redrawnArea = (long) Math.ceil(canvasWidth) * (long) Math.ceil(canvasHeight);
+            graphicsContext.clearRect(0, 0, canvasWidth, canvasHeight);
+            drawSprites(graphicsContext, canvasWidth, canvasHeight, -1);
+        }
+
+        isCanvasInvalid = hasUncachedSprites;
+        lastCanvasWidth = canvasWidth;
+        lastCanvasHeight = canvasHeight;
+
+        //the drawn frame is compared with the next one
+        Frame drawnFrame = frame;
+        frame = previousFrame;
+        previousFrame = drawnFrame;
+        frame.size = 0;
+        culledSize = 0;
+    }
+
+    /**
+     * Number of sprites drawn by the last flush, a sprite is counted once for every dirty rectangle it is drawn in
+     */
+    public int getDrawnCount() {
+        return drawnCount;
+    }
+
+    /**
+     * Number of sprites skipped by the last flush, they were entirely outside the canvas
+     */
+    public int getCulledCount() {
+        return culledCount;
+    }
+
+    /**
+     * Number of runs of sprites with the same image drawn by the last flush
+     */
+    public int getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * Number of dirty rectangles redrawn by the last flush, 0 if the whole canvas was redrawn
+     */
+    public int getDirtyRectCount() {
+        return dirtyRectCount;
+    }
+
+    /**
+     * Number of canvas pixels cleared and redrawn by the last flush
+     */
+    public long getRedrawnArea() {
+        return redrawnArea;
+    }
+
+    /**
+     * Draw the sorted sprites of the frame
+     * @param rect index of the dirty rectangle, only the sprites that intersect it are drawn, -1 to draw all sprites
+     */
+    private void drawSprites(GraphicsContext graphicsContext, double canvasWidth, double canvasHeight, int rect) {
+        Frame frame = this.frame;
+        int batchStart = 0;
+        while (batchStart < frame.size) {
+            //a batch is a run of sprites with the same layer and image
+            long batchKey = frame.keys[batchStart] >>> IMAGE_SHIFT;
+            boolean isTransformed = false;
+            boolean isDrawn = false;
+
+            int i = batchStart;
+            for (; i < frame.size && frame.keys[i] >>> IMAGE_SHIFT == batchKey; i++) {
+                int sprite = (int) (frame.keys[i] & SEQUENCE_MASK);
+                if (rect >= 0 && !intersectsDirtyRect(frame.bounds, sprite, rect))
+                    continue;
+
+                isDrawn = true;
+                drawnCount++;
+                double realPosX = canvasWidth * frame.posX[sprite];
+                double realPosY = canvasHeight * frame.posY[sprite];
+                double realWidth = canvasWidth * frame.width[sprite];
+                double realHeight = canvasHeight * frame.height[sprite];
+
+                ImageRegion region = frame.regions[sprite];
+                if (bitmapCache != null) {
+                    if (!drawCached(graphicsContext, region, realPosX, realPosY, realWidth, realHeight,
+                            frame.rotation[sprite])) {
+                        //the variant is rendered in one of the next frames, the cached sprites need the base transform
+                        hasUncachedSprites = true;
+                        setRotation(graphicsContext, realPosX + realWidth / 2, realPosY + realHeight / 2,
+                                frame.rotation[sprite]);
+                        graphicsContext.drawImage(region.image(), region.x(), region.y(), region.width(),
+                                region.height(), realPosX, realPosY, realWidth, realHeight);
+                        graphicsContext.setTransform(baseTransform);
+                    }
+                    continue;
+                }
+
+                //unrotated sprites are sorted before the rotated ones, so they are drawn with the base transform
+                if ((frame.keys[i] >>> ROTATED_SHIFT & 1) != 0) {
+                    setRotation(graphicsContext, realPosX + realWidth / 2, realPosY + realHeight / 2,
+                            frame.rotation[sprite]);
+                    isTransformed = true;
+                }
+                graphicsContext.drawImage(region.image(), region.x(), region.y(), region.width(), region.height(),
+                        realPosX, realPosY, realWidth, realHeight);
+            }
+
+            if (isTransformed)
+                graphicsContext.setTransform(baseTransform);
+            if (isDrawn)
+                batchCount++;
+            batchStart = i;
+        }
+    }
+
+    /**
+     * Calculate the bounds and the signatures of the queued sprites and merge the bounds of the sprites
+     * that differ from the previous frame into the dirty rectangles
+     * @return false if the whole canvas must be redrawn
+     */
+    private boolean collectDirtyRects(double canvasWidth, double canvasHeight) {
+        Frame frame = this.frame;
+        for (int sprite = 0; sprite < frame.size; sprite++) {
+            calculateBounds(frame, sprite, canvasWidth, canvasHeight);
+            frame.signatures[sprite] = signature(frame, sprite) & ~SEQUENCE_MASK | sprite;
+        }
+        Arrays.sort(frame.signatures, 0, frame.size);
+
+        dirtyRectCount = 0;
+        if (isCanvasInvalid || canvasWidth != lastCanvasWidth || canvasHeight != lastCanvasHeight)
+            return false;
+
+        //walk both sorted signatures, the same sprites are matched, the rest is dirty
+        int canvasMaxX = (int) Math.ceil(canvasWidth);
+        int canvasMaxY = (int) Math.ceil(canvasHeight);
+        Frame previous = previousFrame;
+        int i = 0;
+        int j = 0;
+        while (i < frame.size || j < previous.size) {
+            boolean isAdded;
+            if (j == previous.size || i < frame.size && frame.hashAt(i) < previous.hashAt(j)) {
+                isAdded = addDirtyRect(frame.bounds, frame.spriteAt(i++), canvasMaxX, canvasMaxY);
+            }
+            else if (i == frame.size || frame.hashAt(i) > previous.hashAt(j)) {
+                isAdded = addDirtyRect(previous.bounds, previous.spriteAt(j++), canvasMaxX, canvasMaxY);
+            }
+            else {
+                //the same hash is almost always the same sprite, otherwise both sprites are dirty
+                int sprite = frame.spriteAt(i++);
+                int previousSprite = previous.spriteAt(j++);
+                isAdded = frame.isSameSprite(sprite, previous, previousSprite)
+                        || addDirtyRect(frame.bounds, sprite, canvasMaxX, canvasMaxY)
+                        && addDirtyRect(previous.bounds, previousSprite, canvasMaxX, canvasMaxY);
+            }
+
+            if (!isAdded)
+                return false;
+        }
+
+        long dirtyArea = 0;
+        for (int rect = 0; rect < dirtyRectCount; rect++)
+            dirtyArea += (long) (dirtyRects[4 * rect + 2] - dirtyRects[4 * rect])
+                    * (dirtyRects[4 * rect + 3] - dirtyRects[4 * rect + 1]);
+        return dirtyArea <= dirtyAreaThreshold * canvasMaxX * canvasMaxY;
+    }
+
+    /**
+     * Merge the bounds of the sprite into the dirty rectangles, the rectangles that overlap it become one
+     * @return false if there are too many rectangles
+     */
+    private boolean addDirtyRect(int[] bounds, int sprite, int canvasMaxX, int canvasMaxY) {
+        int minX = Math.max(0, bounds[4 * sprite]);
+        int minY = Math.max(0, bounds[4 * sprite + 1]);
+        int maxX = Math.min(canvasMaxX, bounds[4 * sprite + 2]);
+        int maxY = Math.min(canvasMaxY, bounds[4 * sprite + 3]);
+        if (minX >= maxX || minY >= maxY)
+            return true;
+
+        //the grown rectangle can overlap the rectangles that were checked before, so the check starts again
+        int rect = 0;
+        while (rect < dirtyRectCount) {
+            int offset = 4 * rect;
+            if (minX < dirtyRects[offset + 2] && dirtyRects[offset] < maxX
+                    && minY < dirtyRects[offset + 3] && dirtyRects[offset + 1] < maxY) {
+                minX = Math.min(minX, dirtyRects[offset]);
+                minY = Math.min(minY, dirtyRects[offset + 1]);
+                maxX = Math.max(maxX, dirtyRects[offset + 2]);
+                maxY = Math.max(maxY, dirtyRects[offset + 3]);
+
+                //the last rectangle takes the place of the merged one
+                dirtyRectCount--;
+                System.arraycopy(dirtyRects, 4 * dirtyRectCount, dirtyRects, offset, 4);
+                rect = 0;
+            }
+            else {
+                rect++;
+            }
+        }
+
+        if (dirtyRectCount == MAX_DIRTY_RECTS)
+            return false;
+
+        int offset = 4 * dirtyRectCount++;
+        dirtyRects[offset] = minX;
+        dirtyRects[offset + 1] = minY;
+        dirtyRects[offset + 2] = maxX;
+        dirtyRects[offset + 3] = maxY;
+        return true;
+    }
+
+    private boolean intersectsDirtyRect(int[] bounds, int sprite, int rect) {
+        int offset = 4 * sprite;
+        int rectOffset = 4 * rect;
+        return bounds[offset] < dirtyRects[rectOffset + 2] && dirtyRects[rectOffset] < bounds[offset + 2]
+                && bounds[offset + 1] < dirtyRects[rectOffset + 3] && dirtyRects[rectOffset + 1] < bounds[offset + 3];
+    }
+
+    /**
+     * Pixels of the canvas that the sprite can touch: the bounding box of the rotated sprite with the padding
+     */
+    private static void calculateBounds(Frame frame, int sprite, double canvasWidth, double canvasHeight) {
+        double realWidth = canvasWidth * frame.width[sprite];
+        double realHeight = canvasHeight * frame.height[sprite];
+        double centerPosX = canvasWidth * frame.posX[sprite] + realWidth / 2;
+        double centerPosY = canvasHeight * frame.posY[sprite] + realHeight / 2;
+
+        double halfWidth = realWidth / 2;
+        double halfHeight = realHeight / 2;
+        if (frame.rotation[sprite] % 360 != 0) {
+            double radians = Math.toRadians(frame.rotation[sprite]);
+            double cos = Math.abs(Math.cos(radians));
+            double sin = Math.abs(Math.sin(radians));
+            halfWidth = (realWidth * cos + realHeight * sin) / 2;
+            halfHeight = (realWidth * sin + realHeight * cos) / 2;
+        }
+
+        int offset = 4 * sprite;
+        frame.bounds[offset] = (int) Math.floor(centerPosX - halfWidth) - BOUNDS_PADDING;
+        frame.bounds[offset + 1] = (int) Math.floor(centerPosY - halfHeight) - BOUNDS_PADDING;
+        frame.bounds[offset + 2] = (int) Math.ceil(centerPosX + halfWidth) + BOUNDS_PADDING;
+        frame.bounds[offset + 3] = (int) Math.ceil(centerPosY + halfHeight) + BOUNDS_PADDING;
+    }
+
+    /**
+     * Hash of everything that changes the pixels of the sprite
+     */
+    private static long signature(Frame frame, int sprite) {
+        long hash = System.identityHashCode(frame.regions[sprite]);
+        hash = mix(hash, frame.layers[sprite]);
+        hash = mix(hash, Double.doubleToLongBits(frame.posX[sprite]));
+        hash = mix(hash, Double.doubleToLongBits(frame.posY[sprite]));
+        hash = mix(hash, Double.doubleToLongBits(frame.width[sprite]));
+        hash = mix(hash, Double.doubleToLongBits(frame.height[sprite]));
+        return mix(hash, Double.doubleToLongBits(frame.rotation[sprite]));
+    }
+
+    private static long mix(long hash, long value) {
+        hash = (hash ^ value) * HASH_MULTIPLIER;
+        return hash ^ hash >>> 32;
+    }
+
+    /**
+     * Draw the variant of the image with the same size and rotation, the center of the variant is the center
+     * of the sprite and the variant is aligned with the screen pixels, so it is copied without resampling
+     * @return false if the variant is not rendered yet (the render time budget of the frame is spent)
+     */
+    private boolean drawCached(GraphicsContext graphicsContext, ImageRegion region,
+                            double realPosX, double realPosY, double realWidth, double realHeight, double angle) {
+        int pixelWidth = (int) Math.round(realWidth * pixelScale);
+        int pixelHeight = (int) Math.round(realHeight * pixelScale);
+        if (pixelWidth <= 0 || pixelHeight <= 0)
+            return true;
+
+        Image variant = bitmapCache.get(region, pixelWidth, pixelHeight, angle);
+        if (variant == null)
+            return false;
+
+        if (pixelScale == 1) {
+            double variantPosX = Math.round(realPosX + realWidth / 2 - variant.getWidth() / 2);
+            double variantPosY = Math.round(realPosY + realHeight / 2 - variant.getHeight() / 2);
+            graphicsContext.drawImage(variant, variantPosX, variantPosY);
+            return true;
+        }
+
+        double variantPosX = Math.round((realPosX + realWidth / 2) * pixelScale - variant.getWidth() / 2);
+        double variantPosY = Math.round((realPosY + realHeight / 2) * pixelScale - variant.getHeight() / 2);
+        graphicsContext.drawImage(variant, variantPosX / pixelScale, variantPosY / pixelScale,
+                variant.getWidth() / pixelScale, variant.getHeight() / pixelScale);
+        return true;
+    }
+
+    private static boolean isOutsideCanvas(double posX, double posY, double width, double height, boolean isRotated) {
+        if (!isRotated)
+            return posX + width <= 0 || posY + height <= 0 || posX >= 1 || posY >= 1;
+
+        //a rotated sprite stays inside the circle around its center
+        double radius = Math.hypot(width, height) / 2;
+        double centerPosX = posX + width / 2;
+        double centerPosY = posY + height / 2;
+        return centerPosX + radius <= 0 || centerPosY + radius <= 0 || centerPosX - radius >= 1
+                || centerPosY - radius >= 1;
+    }
+
+    /**
+     * Set the transform to the base transform followed by the rotation around the center point.
+     * This is the same as translate(center), rotate(-angle), translate(-center).
+     */
+    private void setRotation(GraphicsContext graphicsContext, double centerPosX, double centerPosY, double angle) {
+        double radians = Math.toRadians(-angle);
+        double cos = Math.cos(radians);
+        double sin = Math.sin(radians);
+        double rotationTx = centerPosX - cos * centerPosX + sin * centerPosY;
+        double rotationTy = centerPosY - sin * centerPosX - cos * centerPosY;
+
+        double mxx = baseTransform.getMxx();
+        double mxy = baseTransform.getMxy();
+        double myx = baseTransform.getMyx();
+        double myy = baseTransform.getMyy();
+        graphicsContext.setTransform(
+                mxx * cos + mxy * sin, myx * cos + myy * sin,
+                -mxx * sin + mxy * cos, -myx * sin + myy * cos,
+                mxx * rotationTx + mxy * rotationTy + baseTransform.getTx(),
+                myx * rotationTx + myy * rotationTy + baseTransform.getTy());
+    }
+
+    private int imageId(Image image) {
+        Integer id = imageToId.get(image);
+        if (id == null) {
+            id = imageToId.size();
+            if (id >= 1 << IMAGE_BITS)
+                throw new IllegalStateException("Too many images in the batch");
+            imageToId.put(image, id);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,74 @@
+package spaceinvaders.game.render;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import spaceinvaders.AssetPack;
+import spaceinvaders.Resource;
+import spaceinvaders.Utility;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Sprite images as regions of the texture atlas of the asset pack.
+ * <p>
+ * The atlas image is created once from the memory-mapped pixels of the pack, so all sprites of the game share
+ * one texture. Images that are not in the pack (or all images, if the pack wasn't built) are loaded separately
+ * and their region is the whole image.
+ */
+public class SpriteAtlas {
+    private static SpriteAtlas defaultAtlas;
+
+    private final AssetPack pack;
+    private Image atlasImage; //created on the first request
+    private final Map<Resource, ImageRegion> regions = new EnumMap<>(Resource.class);
+
+    /**
+     * @param pack asset pack with the atlas, null to load every image separately
+     */
+    public SpriteAtlas(AssetPack pack) {
+        this.pack = pack;
+    }
+
+    /**
+     * Get the atlas of the default asset pack
+     */
+    public static SpriteAtlas getDefault() {
+        if (defaultAtlas == null)
+            defaultAtlas = new SpriteAtlas(AssetPack.getDefault());
+        return defaultAtlas;
+    }
+
+    /**
+     * Get the region of the image of the resource, the same region object is returned for every call
+     */
+    public ImageRegion get(Resource resource) {
+        ImageRegion region = regions.get(resource);
+        if (region == null) {
+            region = createRegion(resource);
+            regions.put(resource, region);
+        }
+        return region;
+    }
+
+    private ImageRegion createRegion(Resource resource) {
+        if (pack == null || !pack.contains(resource))
+            return ImageRegion.of(Utility.getImage(resource));
+
+        AssetPack.Region region = pack.getRegion(resource);
+        return new ImageRegion(getAtlasImage(), region.x(), region.y(), region.width(), region.height());
+    }
+
+    private Image getAtlasImage() {
+        if (atlasImage == null) {
+            int width = pack.getAtlasWidth();
+            int height = pack.getAtlasHeight();
+            WritableImage image = new WritableImage(width, height);
+            image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(),
+                    pack.getAtlasPixels(), width);
+            atlasImage = image;
+        }
+        return atlasImage;
+    }
+}
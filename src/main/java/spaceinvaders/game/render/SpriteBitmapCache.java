@@ -0,0 +1,261 @@
+package spaceinvaders.game.render;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of the images scaled to their size on the canvas and rotated to their angle.
+ * <p>
+ * A variant is rendered once (in Java, through PixelWriter) for an image region, a size in pixels and an angle bucket
+ * (every rotationStep degrees), after that the sprite is drawn as an unscaled, untransformed blit.
+ * Variants are evicted in the least recently used order when their total size exceeds the memory budget.
+ * The variants are keyed by their size in pixels, so after a change of the canvas size (e.g. a step of the dynamic
+ * resolution) the variants of the old size are reused when the size comes back and are evicted otherwise.
+ * <p>
+ * Rendering is limited to the render time budget per frame (see startFrame), so the variants of a new size
+ * are built over several frames instead of one long frame. When the budget is spent, get returns null
+ * and the sprite is drawn without the cache.
+ */
+public class SpriteBitmapCache {
+    public static final double DEFAULT_ROTATION_STEP = 1; //in degrees
+    public static final double DEFAULT_RENDER_TIME_BUDGET = 2; //in milliseconds per frame
+    private static final int MAX_SUPERSAMPLING = 4; //samples per side of a pixel when the image is scaled down
+    private static final int BYTES_PER_PIXEL = 4;
+
+    /**
+     * Key of a variant. The lookup key is reused, so a lookup doesn't allocate.
+     */
+    private static final class Key {
+        private ImageRegion region;
+        private int width;
+        private int height;
+        private int bucket;
+
+        private Key set(ImageRegion region, int width, int height, int bucket) {
+            this.region = region;
+            this.width = width;
+            this.height = height;
+            this.bucket = bucket;
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof Key key && key.region == region && key.width == width
+                    && key.height == height && key.bucket == bucket;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((System.identityHashCode(region) * 31 + width) * 31 + height) * 31 + bucket;
+        }
+    }
+
+    private final long memoryBudget;
+    private final double rotationStep;
+    private final int numBuckets;
+
+    //access ordered, the first entry is the least recently used one
+    private final LinkedHashMap<Key, Image> variants = new LinkedHashMap<>(16, 0.75f, true);
+    private final Key lookupKey = new Key();
+    private long usedBytes;
+
+    private long renderTimeBudget = toNanoseconds(DEFAULT_RENDER_TIME_BUDGET);
+    private long frameRenderTime; //in nanoseconds
+
+    //statistics
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param memoryBudget maximum total size of the cached variants in bytes
+     */
+    public SpriteBitmapCache(long memoryBudget) {
+        this(memoryBudget, DEFAULT_ROTATION_STEP);
+    }
+
+    /**
+     * @param memoryBudget maximum total size of the cached variants in bytes
+     * @param rotationStep angles are rounded to a multiple of the step, in degrees (360 must be divisible by it)
+     */
+    public SpriteBitmapCache(long memoryBudget, double rotationStep) {
+        if (memoryBudget <= 0 || rotationStep <= 0)
+            throw new IllegalArgumentException("Memory budget and rotation step must be positive");
+
+        this.memoryBudget = memoryBudget;
+        this.rotationStep = rotationStep;
+        this.numBuckets = (int) Math.round(360 / rotationStep);
+    }
+
+    /**
+     * Set the time that can be spent on rendering new variants in one frame, at least one variant is rendered
+     * in every frame
+     * @param renderTimeBudget in milliseconds
+     */
+    public void setRenderTimeBudget(double renderTimeBudget) {
+        if (renderTimeBudget <= 0)
+            throw new IllegalArgumentException("Render time budget must be positive: " + renderTimeBudget);
+        this.renderTimeBudget = toNanoseconds(renderTimeBudget);
+    }
+
+    /**
+     * Start a new frame, the render time budget is available again
+     */
+    public void startFrame() {
+        frameRenderTime = 0;
+    }
+
+    /**
+     * Get the image region scaled to the size and rotated by the angle (as RenderBatch rotates it).
+     * Regions are compared by identity, so every sprite image should have one region object (see SpriteAtlas).
+     * The rotated image is larger than the size, its center is the center of the sprite.
+     * @param width width of the sprite on the canvas in pixels
+     * @param height height of the sprite on the canvas in pixels
+     * @param angle rotation angle in degrees, rounded to the nearest bucket
+     * @return the variant, null if it is not cached and the render time budget of the frame is spent
+     */
+    public Image get(ImageRegion region, int width, int height, double angle) {
+        int bucket = (int) Math.round(angle / rotationStep) % numBuckets;
+        if (bucket < 0)
+            bucket += numBuckets;
+
+        Image variant = variants.get(lookupKey.set(region, width, height, bucket));
+        lookupKey.region = null; //don't keep the image alive through the lookup key
+        if (variant != null) {
+            hits++;
+            return variant;
+        }
+
+        if (frameRenderTime >= renderTimeBudget)
+            return null;
+
+        misses++;
+        long start = System.nanoTime();
+        variant = render(region, width, height, bucket * rotationStep);
+        frameRenderTime += System.nanoTime() - start;
+        variants.put(new Key().set(region, width, height, bucket), variant);
+        usedBytes += sizeOf(variant);
+        evict();
+        return variant;
+    }
+
+    /**
+     * Drop all variants
+     */
+    public void invalidate() {
+        evictions += variants.size();
+        variants.clear();
+        usedBytes = 0;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public int size() {
+        return variants.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Remove the least recently used variants until the used memory fits the budget, the newest variant is kept
+     */
+    private void evict() {
+        Iterator<Map.Entry<Key, Image>> iterator = variants.entrySet().iterator();
+        while (usedBytes > memoryBudget && variants.size() > 1) {
+            usedBytes -= sizeOf(iterator.next().getValue());
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    private static long toNanoseconds(double milliseconds) {
+        return (long) (milliseconds * 1_000_000);
+    }
+
+    private static long sizeOf(Image variant) {
+        return (long) variant.getWidth() * (long) variant.getHeight() * BYTES_PER_PIXEL;
+    }
+
+    /**
+     * Render the image region scaled to width x height and rotated by the angle around its center.
+     * Every pixel is the average of up to MAX_SUPERSAMPLING^2 samples of the source image,
+     * the colors are premultiplied, so transparent pixels don't darken the edges.
+     */
+    private static Image render(ImageRegion region, int width, int height, double angle) {
+        PixelReader reader = region.image().getPixelReader();
+        int sourceWidth = (int) region.width();
+        int sourceHeight = (int) region.height();
+        int[] source = new int[sourceWidth * sourceHeight];
+        reader.getPixels((int) region.x(), (int) region.y(), sourceWidth, sourceHeight,
+                PixelFormat.getIntArgbPreInstance(), source, 0, sourceWidth);
+
+        double radians = Math.toRadians(angle);
+        double cos = Math.cos(radians);
+        double sin = Math.sin(radians);
+        int variantWidth = Math.max(1, (int) Math.ceil(Math.abs(width * cos) + Math.abs(height * sin) - 1e-9));
+        int variantHeight = Math.max(1, (int) Math.ceil(Math.abs(width * sin) + Math.abs(height * cos) - 1e-9));
+
+        double scaleX = (double) sourceWidth / width;
+        double scaleY = (double) sourceHeight / height;
+        int samples = Math.min(MAX_SUPERSAMPLING, Math.max(1, (int) Math.ceil(Math.max(scaleX, scaleY))));
+
+        int[] pixels = new int[variantWidth * variantHeight];
+        for (int y = 0; y < variantHeight; y++) {
+            for (int x = 0; x < variantWidth; x++) {
+                long alpha = 0, red = 0, green = 0, blue = 0;
+                for (int sampleY = 0; sampleY < samples; sampleY++) {
+                    for (int sampleX = 0; sampleX < samples; sampleX++) {
+                        //point relative to the center of the variant
+                        double pointX = x + (sampleX + 0.5) / samples - variantWidth / 2.0;
+                        double pointY = y + (sampleY + 0.5) / samples - variantHeight / 2.0;
+
+                        //the canvas is rotated by -angle, so the sprite point is the point rotated by the angle
+                        double spritePosX = pointX * cos - pointY * sin + width / 2.0;
+                        double spritePosY = pointX * sin + pointY * cos + height / 2.0;
+                        int sourceX = (int) Math.floor(spritePosX * scaleX);
+                        int sourceY = (int) Math.floor(spritePosY * scaleY);
+                        if (sourceX < 0 || sourceY < 0 || sourceX >= sourceWidth || sourceY >= sourceHeight)
+                            continue;
+
+                        int argb = source[sourceY * sourceWidth + sourceX];
+                        alpha += argb >>> 24;
+                        red += argb >> 16 & 0xFF;
+                        green += argb >> 8 & 0xFF;
+                        blue += argb & 0xFF;
+                    }
+                }
+                int count = samples * samples;
+                pixels[y * variantWidth + x] = (int) ((alpha / count) << 24 | (red / count) << 16
+                        | (green / count) << 8 | blue / count);
+            }
+        }
+
+        WritableImage variant = new WritableImage(variantWidth, variantHeight);
+        variant.getPixelWriter().setPixels(0, 0, variantWidth, variantHeight, PixelFormat.getIntArgbPreInstance(),
+                pixels, 0, variantWidth);
+        return variant;
+    }
+}
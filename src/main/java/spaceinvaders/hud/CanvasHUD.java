@@ -0,0 +1,164 @@
+package spaceinvaders.hud;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import spaceinvaders.ImageCache;
+import spaceinvaders.Resource;
+import spaceinvaders.game.render.ImageRegion;
+import spaceinvaders.game.render.RenderBatch;
+
+/**
+ * The game HUD that is drawn straight into the game canvas instead of being a node.
+ * Displays the number of lives and the current score with the same layout as HUD.
+ * <p>
+ * All digits are copied once into one image (the digit strip) at the size they are displayed,
+ * so a number is drawn as a few unscaled regions of one image. The digits of a number are
+ * recalculated only when the number changes and only the changed digits are rewritten,
+ * no objects are created per frame.
+ * <p>
+ * The images are queued into the render batch of the game over the sprites, so a changed digit is a changed sprite
+ * for the dirty regions of the batch.
+ * <p>
+ * The images are taken from the image cache and released by dispose at the end of the game.
+ */
+public class CanvasHUD {
+    private static final Resource[] DIGIT_RESOURCES = {
+            Resource.NUMERAL_ZERO, Resource.NUMERAL_ONE, Resource.NUMERAL_TWO, Resource.NUMERAL_THREE,
+            Resource.NUMERAL_FOUR, Resource.NUMERAL_FIVE, Resource.NUMERAL_SIX, Resource.NUMERAL_SEVEN,
+            Resource.NUMERAL_EIGHT, Resource.NUMERAL_NINE
+    };
+    private static final int MAX_DIGITS = 10; //enough for any int
+
+    private final Image liveImage = ImageCache.getDefault().acquire(Resource.LIVE);
+    private final Image xImage = ImageCache.getDefault().acquire(Resource.NUMERAL_X);
+
+    private final ImageRegion[] digitRegions = new ImageRegion[DIGIT_RESOURCES.length];
+    private final int digitWidth;
+    private final int digitHeight;
+
+    private final DigitBuffer livesDigits = new DigitBuffer();
+    private final DigitBuffer scoreDigits = new DigitBuffer();
+
+    public CanvasHUD() {
+        Image[] digitImages = new Image[DIGIT_RESOURCES.length];
+        int width = 0;
+        int height = 0;
+        for (int digit = 0; digit < DIGIT_RESOURCES.length; digit++) {
+            digitImages[digit] = ImageCache.getDefault().acquire(DIGIT_RESOURCES[digit]);
+            width = Math.max(width, (int) digitImages[digit].getWidth());
+            height = Math.max(height, (int) digitImages[digit].getHeight());
+        }
+        digitWidth = width;
+        digitHeight = height;
+
+        //copy the digits side by side
+        WritableImage digitStrip = new WritableImage(digitWidth * digitImages.length, digitHeight);
+        PixelWriter pixelWriter = digitStrip.getPixelWriter();
+        for (int digit = 0; digit < digitImages.length; digit++) {
+            PixelReader pixelReader = digitImages[digit].getPixelReader();
+            pixelWriter.setPixels(digit * digitWidth, 0, (int) digitImages[digit].getWidth(),
+                    (int) digitImages[digit].getHeight(), pixelReader, 0, 0);
+            digitRegions[digit] = new ImageRegion(digitStrip, digit * digitWidth, 0, digitWidth, digitHeight);
+        }
+
+        setNumLives(0);
+        setScore(0);
+    }
+
+    public void setNumLives(int numLives) {
+        livesDigits.setNumber(numLives);
+    }
+
+    public void setScore(int score) {
+        scoreDigits.setNumber(score);
+    }
+
+    /**
+     * Release the images of the HUD, the digit strip is a copy and stays valid
+     */
+    public void dispose() {
+        ImageCache.getDefault().release(Resource.LIVE);
+        ImageCache.getDefault().release(Resource.NUMERAL_X);
+        for (Resource resource : DIGIT_RESOURCES)
+            ImageCache.getDefault().release(resource);
+    }
+
+    /**
+     * Number of digits that were rewritten since the HUD was created
+     */
+    public long getChangedDigits() {
+        return livesDigits.changedDigits + scoreDigits.changedDigits;
+    }
+
+    /**
+     * Queue the HUD into the batch, the layout is the same as the layout of HUD of the same size:
+     * lives in the top left corner, score in the top right corner
+     * @param layer layer of the batch over the sprites of the game
+     * @param width width of the game, the images are not scaled at this size
+     * @param height height of the game
+     */
+    public void addTo(RenderBatch renderBatch, int layer, double width, double height) {
+        double paddingX = width * HUD.HUD_PADDING;
+        double paddingY = height * HUD.HUD_PADDING;
+        double spacing = width * HUD.LIVES_SPACING;
+
+        //lives
+        double posX = paddingX;
+        addImage(renderBatch, layer, liveImage, posX, paddingY, width, height);
+        posX += liveImage.getWidth() + spacing;
+        addImage(renderBatch, layer, xImage, posX, paddingY, width, height);
+        posX += xImage.getWidth() + spacing;
+        addNumber(renderBatch, layer, livesDigits, posX, paddingY, width, height);
+
+        //score
+        addNumber(renderBatch, layer, scoreDigits, width - paddingX - scoreDigits.length * digitWidth, paddingY,
+                width, height);
+    }
+
+    private static void addImage(RenderBatch renderBatch, int layer, Image image, double posX, double posY,
+                                 double width, double height) {
+        renderBatch.add(layer, image, posX / width, posY / height, image.getWidth() / width,
+                image.getHeight() / height, 0);
+    }
+
+    private void addNumber(RenderBatch renderBatch, int layer, DigitBuffer number, double posX, double posY,
+                           double width, double height) {
+        for (int i = 0; i < number.length; i++) {
+            int digit = number.digits[MAX_DIGITS - number.length + i];
+            renderBatch.add(layer, digitRegions[digit], (posX + i * digitWidth) / width, posY / height,
+                    digitWidth / width, digitHeight / height, 0);
+        }
+    }
+
+    /**
+     * Digits of a number, aligned to the end of the array
+     */
+    private static class DigitBuffer {
+        private final int[] digits = new int[MAX_DIGITS];
+        private int length;
+        private int number = -1;
+        private long changedDigits;
+
+        void setNumber(int number) {
+            if (this.number == number)
+                return;
+
+            this.number = number;
+
+            int newLength = 0;
+            do {
+                int index = MAX_DIGITS - 1 - newLength;
+                int digit = number % 10;
+                if (newLength >= length || digits[index] != digit) {
+                    digits[index] = digit;
+                    changedDigits++;
+                }
+                number /= 10;
+                newLength++;
+            } while (number != 0);
+            length = newLength;
+        }
+    }
+}
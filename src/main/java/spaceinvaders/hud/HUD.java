@@ -52,6 +52,14 @@ public class HUD implements NodeManager {
         topPane.setRight(scoreView.getNode());
     }
 
+    /**
+     * Release the images of the HUD, called at the end of the game
+     */
+    public void dispose() {
+        livesView.dispose();
+        scoreView.dispose();
+    }
+
     @Override
     public Node getNode() {
         return hudPane;
@@ -5,28 +5,27 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.HBox;
 import javafx.scene.Node;
+import spaceinvaders.ImageCache;
 import spaceinvaders.NodeManager;
 import spaceinvaders.Resource;
-import spaceinvaders.Utility;
 
 
 /**
  * The class that display player lives
  */
 public class LivesView implements NodeManager {
-    private static final Image LIVE_IMAGE = Utility.getImage(Resource.LIVE);
-    private static final Image X_IMAGE = Utility.getImage(Resource.NUMERAL_X);
-
     private final HBox hBox;
     private final NumberView prettyNumber;
 
     public LivesView() {
         hBox = new HBox();
 
-        ImageView liveImageView = new ImageView(LIVE_IMAGE);
+        Image liveImage = ImageCache.getDefault().acquire(Resource.LIVE);
+        ImageView liveImageView = new ImageView(liveImage);
         hBox.getChildren().add(liveImageView);
 
-        ImageView xImageView = new ImageView(X_IMAGE);
+        Image xImage = ImageCache.getDefault().acquire(Resource.NUMERAL_X);
+        ImageView xImageView = new ImageView(xImage);
         hBox.getChildren().add(xImageView);
 
         prettyNumber = new NumberView();
@@ -37,6 +36,15 @@ public class LivesView implements NodeManager {
         prettyNumber.setNumber(numLives);
     }
 
+    /**
+     * Release the images of the view, the view must not be used after this
+     */
+    public void dispose() {
+        ImageCache.getDefault().release(Resource.LIVE);
+        ImageCache.getDefault().release(Resource.NUMERAL_X);
+        prettyNumber.dispose();
+    }
+
     @Override
     public Node getNode() {
         return hBox;
@@ -5,34 +5,30 @@ import javafx.scene.Node;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.HBox;
+import spaceinvaders.ImageCache;
 import spaceinvaders.NodeManager;
 import spaceinvaders.Resource;
-import spaceinvaders.Utility;
-
-import java.util.Map;
 
 /**
- * The class that displays a number using images of digits
+ * The class that displays a number using images of digits.
+ * The images of the digits are taken from the image cache and released by dispose.
  */
 public class NumberView implements NodeManager {
-    private static final Map<Integer, Image> digitToImage = Map.of(
-            0, Utility.getImage(Resource.NUMERAL_ZERO),
-            1, Utility.getImage(Resource.NUMERAL_ONE),
-            2, Utility.getImage(Resource.NUMERAL_TWO),
-            3, Utility.getImage(Resource.NUMERAL_THREE),
-            4, Utility.getImage(Resource.NUMERAL_FOUR),
-            5, Utility.getImage(Resource.NUMERAL_FIVE),
-            6, Utility.getImage(Resource.NUMERAL_SIX),
-            7, Utility.getImage(Resource.NUMERAL_SEVEN),
-            8, Utility.getImage(Resource.NUMERAL_EIGHT),
-            9, Utility.getImage(Resource.NUMERAL_NINE)
-    );
+    private static final Resource[] DIGIT_RESOURCES = {
+            Resource.NUMERAL_ZERO, Resource.NUMERAL_ONE, Resource.NUMERAL_TWO, Resource.NUMERAL_THREE,
+            Resource.NUMERAL_FOUR, Resource.NUMERAL_FIVE, Resource.NUMERAL_SIX, Resource.NUMERAL_SEVEN,
+            Resource.NUMERAL_EIGHT, Resource.NUMERAL_NINE
+    };
 
+    private final Image[] digitImages = new Image[DIGIT_RESOURCES.length];
     private final HBox hBox;
 
     private int number;
 
     public NumberView() {
+        for (int digit = 0; digit < DIGIT_RESOURCES.length; digit++)
+            digitImages[digit] = ImageCache.getDefault().acquire(DIGIT_RESOURCES[digit]);
+
         hBox = new HBox();
         this.number = -1;
         setNumber(0);
@@ -47,13 +43,21 @@ public class NumberView implements NodeManager {
         hBox.getChildren().clear();
         do {
             int digit = number % 10;
-            Image digitImage = digitToImage.get(digit);
+            Image digitImage = digitImages[digit];
             ImageView digitImageView = new ImageView(digitImage);
             hBox.getChildren().add(0, digitImageView);
             number /= 10;
         } while (number != 0);
     }
 
+    /**
+     * Release the images of the digits, the view must not be used after this
+     */
+    public void dispose() {
+        for (Resource resource : DIGIT_RESOURCES)
+            ImageCache.getDefault().release(resource);
+    }
+
     @Override
     public Node getNode() {
         return hBox;
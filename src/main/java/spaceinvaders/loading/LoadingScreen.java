@@ -0,0 +1,45 @@
+package spaceinvaders.loading;
+
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import spaceinvaders.NodeManager;
+
+/**
+ * Screen that is shown while the resources are preloaded: a progress bar and the name of the last loaded asset.
+ * Uses only the default JavaFX font and controls, so it doesn't wait for any resource itself.
+ */
+public class LoadingScreen implements NodeManager {
+    private static final double SPACING = 10;
+    private static final double PROGRESS_BAR_WIDTH = 0.6; //relative to the width of the screen
+
+    private final VBox vBox;
+
+    public LoadingScreen(ResourcePreloader preloader, double width, double height) {
+        vBox = new VBox(SPACING);
+        vBox.setAlignment(Pos.CENTER);
+        vBox.setPrefSize(width, height);
+        vBox.setStyle("-fx-background-color: black;");
+
+        Label title = new Label("Loading");
+        title.setTextFill(Color.WHITE);
+
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(width * PROGRESS_BAR_WIDTH);
+        progressBar.progressProperty().bind(preloader.progressProperty());
+
+        Label assetLabel = new Label();
+        assetLabel.setTextFill(Color.GRAY);
+        assetLabel.textProperty().bind(preloader.messageProperty());
+
+        vBox.getChildren().addAll(title, progressBar, assetLabel);
+    }
+
+    @Override
+    public Node getNode() {
+        return vBox;
+    }
+}
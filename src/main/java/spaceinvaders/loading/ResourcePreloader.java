@@ -0,0 +1,151 @@
+package spaceinvaders.loading;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import spaceinvaders.AssetPack;
+import spaceinvaders.ImageCache;
+import spaceinvaders.Resource;
+import spaceinvaders.Utility;
+import spaceinvaders.game.render.SpriteAtlas;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads all resources of the game in parallel before the game scene is built.
+ * <p>
+ * Every image is decoded on a thread of the worker pool into the image cache (see ImageCache),
+ * so the views (Menu, HUD, background) only take the loaded images. The preloader holds a reference to every image
+ * until releaseImages is called after the views are built, then the images that no view uses are dropped.
+ * The font is loaded once to register it, and the sprite atlas of the asset pack is created.
+ * Progress and the name of the last loaded asset are published on the JavaFX thread.
+ */
+public class ResourcePreloader {
+    private static final int FONT_SIZE = 12; //any size registers the font family
+
+    private final int numThreads;
+    private final ReadOnlyDoubleWrapper progress = new ReadOnlyDoubleWrapper(0);
+    private final ReadOnlyStringWrapper message = new ReadOnlyStringWrapper("");
+    private final Queue<Resource> acquiredImages = new ConcurrentLinkedQueue<>();
+
+    public ResourcePreloader(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Start loading on a new worker pool, the pool is shut down when all assets are loaded
+     * @param launchTime System.nanoTime of the launch of the application, the report is measured from it
+     * @return future that is completed with the report when all assets are loaded (on a worker thread).
+     * An asset that could not be loaded doesn't fail the future, the error is in the report.
+     */
+    public CompletableFuture<StartupReport> start(long launchTime) {
+        StartupReport report = new StartupReport(launchTime, numThreads);
+        Map<String, Runnable> assets = createAssets();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads, runnable -> {
+            Thread thread = new Thread(runnable, "preloader-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        report.markPreloadStart();
+        AtomicInteger numLoaded = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (Map.Entry<String, Runnable> asset : assets.entrySet()) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                report.addAsset(load(asset.getKey(), asset.getValue()));
+
+                double loaded = (double) numLoaded.incrementAndGet() / assets.size();
+                Platform.runLater(() -> {
+                    progress.set(Math.max(progress.get(), loaded));
+                    message.set(asset.getKey());
+                });
+            }, executor));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            report.markPreloadEnd();
+            executor.shutdown();
+            return report;
+        });
+    }
+
+    /**
+     * Part of the loaded assets, from 0 to 1
+     */
+    public ReadOnlyDoubleProperty progressProperty() {
+        return progress.getReadOnlyProperty();
+    }
+
+    /**
+     * Name of the last loaded asset
+     */
+    public ReadOnlyStringProperty messageProperty() {
+        return message.getReadOnlyProperty();
+    }
+
+    /**
+     * Release the references to the preloaded images, called when the views have taken their images
+     */
+    public void releaseImages() {
+        Resource resource;
+        while ((resource = acquiredImages.poll()) != null)
+            ImageCache.getDefault().release(resource);
+    }
+
+    /**
+     * Loading functions of all assets by name
+     */
+    private Map<String, Runnable> createAssets() {
+        Map<String, Runnable> assets = new LinkedHashMap<>();
+
+        //the atlas first, it is the largest asset
+        assets.put("sprite atlas", () -> {
+            AssetPack pack = AssetPack.getDefault();
+            SpriteAtlas atlas = SpriteAtlas.getDefault();
+            for (Resource resource : Resource.values()) {
+                if (pack != null && pack.contains(resource))
+                    atlas.get(resource);
+            }
+        });
+
+        for (Resource resource : Resource.values()) {
+            if (resource == Resource.MENU_FONT) {
+                assets.put(resource.name(), () -> Utility.loadFont(resource, FONT_SIZE));
+            }
+            else {
+                assets.put(resource.name(), () -> {
+                    ImageCache.getDefault().acquire(resource);
+                    acquiredImages.add(resource);
+                });
+            }
+        }
+        return assets;
+    }
+
+    private static StartupReport.AssetTiming load(String name, Runnable loader) {
+        long start = System.nanoTime();
+        String error = null;
+        try {
+            loader.run();
+        }
+        catch (RuntimeException | LinkageError exception) {
+            //e.g. a broken file or a missing native library of the font renderer, the game can start without the asset
+            error = exception.toString();
+        }
+        double loadTime = Utility.nanoToMilliseconds(System.nanoTime() - start);
+        return new StartupReport.AssetTiming(name, loadTime, Thread.currentThread().getName(), error);
+    }
+}
@@ -0,0 +1,103 @@
+package spaceinvaders.loading;
+
+import spaceinvaders.Utility;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Breakdown of the startup time: the time of every preloaded asset, the time of preloading,
+ * of building the game scene and the time to the first frame of the game window.
+ * All points in time are measured from the launch of the application.
+ */
+public class StartupReport {
+    /**
+     * Time of loading one asset on a worker thread
+     * @param error message of the error if the asset could not be loaded, null otherwise
+     */
+    public record AssetTiming(String name, double loadTime, String threadName, String error) {
+    }
+
+    private final long launchTime; //System.nanoTime of the launch
+    private final int numThreads;
+    private final List<AssetTiming> assets = new ArrayList<>();
+    private double preloadStart;
+    private double preloadEnd;
+    private double sceneBuilt;
+    private double firstFrame;
+    private int numImages;
+    private long imageBytes;
+
+    public StartupReport(long launchTime, int numThreads) {
+        this.launchTime = launchTime;
+        this.numThreads = numThreads;
+    }
+
+    synchronized void addAsset(AssetTiming timing) {
+        assets.add(timing);
+    }
+
+    void markPreloadStart() {
+        preloadStart = sinceLaunch();
+    }
+
+    void markPreloadEnd() {
+        preloadEnd = sinceLaunch();
+    }
+
+    public void markSceneBuilt() {
+        sceneBuilt = sinceLaunch();
+    }
+
+    public void markFirstFrame() {
+        firstFrame = sinceLaunch();
+    }
+
+    /**
+     * Remember the number and the memory of the images in the image cache
+     */
+    public void setImageMemory(int numImages, long imageBytes) {
+        this.numImages = numImages;
+        this.imageBytes = imageBytes;
+    }
+
+    public synchronized List<AssetTiming> getAssets() {
+        return List.copyOf(assets);
+    }
+
+    /**
+     * Time from the launch to the first frame of the game window in milliseconds
+     */
+    public double getTimeToFirstFrame() {
+        return firstFrame;
+    }
+
+    /**
+     * Report as a table, the slowest assets first
+     */
+    public synchronized String format() {
+        StringBuilder builder = new StringBuilder("Startup report (ms since launch)\n");
+        builder.append(String.format("  %-24s %10s  %s%n", "asset", "load, ms", "thread"));
+
+        List<AssetTiming> sorted = new ArrayList<>(assets);
+        sorted.sort(Comparator.comparingDouble(AssetTiming::loadTime).reversed());
+        double totalLoadTime = 0;
+        for (AssetTiming asset : sorted) {
+            totalLoadTime += asset.loadTime();
+            builder.append(String.format("  %-24s %10.1f  %s%s%n", asset.name(), asset.loadTime(), asset.threadName(),
+                    asset.error() == null ? "" : "  FAILED: " + asset.error()));
+        }
+
+        builder.append(String.format("  preloading on %d threads: %.1f - %.1f (%.1f wall, %.1f summed)%n",
+                numThreads, preloadStart, preloadEnd, preloadEnd - preloadStart, totalLoadTime));
+        builder.append(String.format("  decoded images: %d, %.1f KiB%n", numImages, imageBytes / 1024.0));
+        builder.append(String.format("  game scene built: %.1f%n", sceneBuilt));
+        builder.append(String.format("  first frame: %.1f%n", firstFrame));
+        return builder.toString();
+    }
+
+    private double sinceLaunch() {
+        return Utility.nanoToMilliseconds(System.nanoTime() - launchTime);
+    }
+}
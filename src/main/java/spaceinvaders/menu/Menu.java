@@ -1,6 +1,6 @@
 package spaceinvaders.menu;
 
-import javafx.beans.binding.Bindings;
+import javafx.beans.InvalidationListener;
 import javafx.beans.property.ReadOnlyDoubleProperty;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
@@ -10,6 +10,8 @@ import javafx.scene.control.Labeled;
 import javafx.scene.image.Image;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import spaceinvaders.ImageCache;
 import spaceinvaders.NodeManager;
 import spaceinvaders.Resource;
 import spaceinvaders.Utility;
@@ -29,8 +31,8 @@ public class Menu implements NodeManager {
     private static final double BUTTON_HEIGHT = 0.04;
     private static final double BUTTON_WIDTH = 0.4;
     private static final double BUTTON_FONT_SIZE = 0.037;
-    private static final Image BUTTON_IMAGE = Utility.getImage(Resource.BLUE_BUTTON);
 
+    private final Image buttonImage = ImageCache.getDefault().acquire(Resource.BLUE_BUTTON);
     private final GridPane gridPane;
     private Button startButton;
     private Button exitButton;
@@ -77,6 +79,13 @@ public class Menu implements NodeManager {
         exitButton.setOnAction(actionEvent -> runnable.run());
     }
 
+    /**
+     * Release the image of the buttons, called when the window is closed
+     */
+    public void dispose() {
+        ImageCache.getDefault().release(Resource.BLUE_BUTTON);
+    }
+
     public void setLastGameScore(int score) {
         scoreLabel.setText("Score: " + score);
     }
@@ -125,7 +134,7 @@ public class Menu implements NodeManager {
         button.prefHeightProperty().bind(heightProperty.multiply(BUTTON_HEIGHT));
 
         BackgroundImage buttonBackground = new BackgroundImage(
-               BUTTON_IMAGE,
+                buttonImage,
                 BackgroundRepeat.NO_REPEAT,
                 BackgroundRepeat.NO_REPEAT,
                 BackgroundPosition.DEFAULT,
@@ -137,11 +146,19 @@ public class Menu implements NodeManager {
         return button;
     }
 
+    /**
+     * Scale the font of the node with the width of the menu.
+     * The font is changed only when its size in whole points changes, fonts come from the font cache.
+     */
     private void bindFontProperty(Labeled labeled, double fontSize) {
         ReadOnlyDoubleProperty widthProperty = gridPane.widthProperty();
 
-        labeled.fontProperty().bind(Bindings.createObjectBinding(() ->
-                Utility.loadFont(Resource.MENU_FONT, (int) widthProperty.multiply(fontSize).get()),
-                widthProperty));
+        InvalidationListener updateFont = observable -> {
+            Font font = Utility.loadFont(Resource.MENU_FONT, (int) (widthProperty.get() * fontSize));
+            if (labeled.getFont() != font)
+                labeled.setFont(font);
+        };
+        widthProperty.addListener(updateFont);
+        updateFont.invalidated(widthProperty);
     }
 }
@@ -0,0 +1,160 @@
+package spaceinvaders.replay;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Recorded game: the seed of the game (see GameRandom) and the inputs stamped with the tick they were applied before.
+ * Replaying the inputs on a simulation started with the seed gives the same game.
+ * <p>
+ * Binary format (big-endian):
+ * <pre>
+ *  int    MAGIC
+ *  byte   VERSION
+ *  long   seed
+ *  long   number of ticks
+ *  int    number of events
+ *  events:
+ *   varint number of ticks since the previous event
+ *   byte   kind (ordinal of Kind)
+ *   kind DIRECTION: byte ordinal of Ship.Direction
+ *   kind FIRE_MODE: byte 1 (on) or 0 (off)
+ *   kind TICK_TIME: double duration of the next ticks in milliseconds
+ * </pre>
+ * Inputs are recorded only when they change, the tick time only when it differs from the previous tick,
+ * so a game with a fixed timestep is a few bytes per key press.
+ */
+public class Replay {
+    public static final int MAGIC = 0x53495250; //"SIRP"
+    public static final int VERSION = 1;
+
+    public enum Kind {
+        DIRECTION,
+        FIRE_MODE,
+        TICK_TIME
+    }
+
+    /**
+     * Input applied before the tick
+     * @param tick number of ticks run before the input
+     * @param value ordinal of the direction, 1 or 0 for the fire mode, milliseconds for the tick time
+     */
+    public record Event(long tick, Kind kind, double value) {
+    }
+
+    private final long seed;
+    private final long numTicks;
+    private final List<Event> events;
+
+    public Replay(long seed, long numTicks, List<Event> events) {
+        this.seed = seed;
+        this.numTicks = numTicks;
+        this.events = Collections.unmodifiableList(new ArrayList<>(events));
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Number of ticks of the recorded game
+     */
+    public long getNumTicks() {
+        return numTicks;
+    }
+
+    /**
+     * Events in the order of the ticks
+     */
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    public void write(OutputStream outputStream) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream));
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        output.writeLong(seed);
+        output.writeLong(numTicks);
+        output.writeInt(events.size());
+
+        long previousTick = 0;
+        for (Event event : events) {
+            writeVarLong(output, event.tick() - previousTick);
+            previousTick = event.tick();
+            output.writeByte(event.kind().ordinal());
+            switch (event.kind()) {
+                case DIRECTION, FIRE_MODE -> output.writeByte((int) event.value());
+                case TICK_TIME -> output.writeDouble(event.value());
+            }
+        }
+        output.flush();
+    }
+
+    public void write(Path path) throws IOException {
+        try (OutputStream outputStream = Files.newOutputStream(path)) {
+            write(outputStream);
+        }
+    }
+
+    /**
+     * @throws IOException if the stream is not a replay of this version
+     */
+    public static Replay read(InputStream inputStream) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream));
+        if (input.readInt() != MAGIC)
+            throw new IOException("Not a replay");
+        int version = input.readUnsignedByte();
+        if (version != VERSION)
+            throw new IOException("Unsupported replay version: " + version);
+
+        long seed = input.readLong();
+        long numTicks = input.readLong();
+        int numEvents = input.readInt();
+        Kind[] kinds = Kind.values();
+
+        List<Event> events = new ArrayList<>(numEvents);
+        long tick = 0;
+        for (int i = 0; i < numEvents; i++) {
+            tick += readVarLong(input);
+            int kind = input.readUnsignedByte();
+            if (kind >= kinds.length)
+                throw new IOException("Unknown replay event: " + kind);
+            double value = switch (kinds[kind]) {
+                case DIRECTION, FIRE_MODE -> input.readUnsignedByte();
+                case TICK_TIME -> input.readDouble();
+            };
+            events.add(new Event(tick, kinds[kind], value));
+        }
+        return new Replay(seed, numTicks, events);
+    }
+
+    public static Replay read(Path path) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            return read(inputStream);
+        }
+    }
+
+    private static void writeVarLong(DataOutput output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Malformed replay");
+    }
+}
@@ -0,0 +1,76 @@
+package spaceinvaders.replay;
+
+import spaceinvaders.game.Ship;
+import spaceinvaders.game.Simulation;
+
+import java.util.List;
+
+/**
+ * Replays a recorded game on a simulation, tick by tick (on screen, see Game) or as fast as possible (runToEnd).
+ * The simulation must not get other inputs during the replay.
+ */
+public class ReplayPlayer {
+    private static final Ship.Direction[] DIRECTIONS = Ship.Direction.values();
+
+    private final Replay replay;
+    private final Simulation simulation;
+    private final List<Replay.Event> events;
+
+    private int nextEvent;
+    private double tickTime;
+
+    public ReplayPlayer(Replay replay, Simulation simulation) {
+        this.replay = replay;
+        this.simulation = simulation;
+        this.events = replay.getEvents();
+    }
+
+    /**
+     * Start the recorded game from the beginning
+     */
+    public void start() {
+        simulation.startGame(replay.getSeed());
+        nextEvent = 0;
+        tickTime = 0;
+    }
+
+    /**
+     * Apply the inputs of the next tick and run it
+     * @return false if the replay has ended
+     */
+    public boolean step() {
+        if (isFinished())
+            return false;
+
+        long tick = simulation.getTickCount();
+        while (nextEvent < events.size() && events.get(nextEvent).tick() <= tick) {
+            Replay.Event event = events.get(nextEvent++);
+            switch (event.kind()) {
+                case DIRECTION -> simulation.setPlayerShipDirection(DIRECTIONS[(int) event.value()]);
+                case FIRE_MODE -> simulation.setFireMode(event.value() != 0);
+                case TICK_TIME -> tickTime = event.value();
+            }
+        }
+        simulation.tick(tickTime);
+        return true;
+    }
+
+    /**
+     * Run all remaining ticks
+     * @return number of ticks run
+     */
+    public long runToEnd() {
+        long ticks = 0;
+        while (step())
+            ticks++;
+        return ticks;
+    }
+
+    public boolean isFinished() {
+        return simulation.isGameOver() || simulation.getTickCount() >= replay.getNumTicks();
+    }
+
+    public Replay getReplay() {
+        return replay;
+    }
+}
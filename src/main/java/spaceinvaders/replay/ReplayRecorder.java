@@ -0,0 +1,56 @@
+package spaceinvaders.replay;
+
+import spaceinvaders.game.Ship;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the inputs of one game, used by Simulation while recording is on.
+ * Repeated inputs (e.g. the key repeat of a held key) are not recorded.
+ */
+public class ReplayRecorder {
+    private final long seed;
+    private final List<Replay.Event> events = new ArrayList<>();
+
+    private int direction = -1;
+    private int fireMode = -1;
+    private double tickTime = Double.NaN;
+
+    public ReplayRecorder(long seed) {
+        this.seed = seed;
+    }
+
+    public void direction(long tick, Ship.Direction direction) {
+        if (this.direction != direction.ordinal()) {
+            this.direction = direction.ordinal();
+            events.add(new Replay.Event(tick, Replay.Kind.DIRECTION, direction.ordinal()));
+        }
+    }
+
+    public void fireMode(long tick, boolean isFireOn) {
+        int fireMode = isFireOn ? 1 : 0;
+        if (this.fireMode != fireMode) {
+            this.fireMode = fireMode;
+            events.add(new Replay.Event(tick, Replay.Kind.FIRE_MODE, fireMode));
+        }
+    }
+
+    /**
+     * Called before every tick, the duration is recorded only when it changes
+     */
+    public void tick(long tick, double tickTime) {
+        if (Double.compare(this.tickTime, tickTime) != 0) {
+            this.tickTime = tickTime;
+            events.add(new Replay.Event(tick, Replay.Kind.TICK_TIME, tickTime));
+        }
+    }
+
+    /**
+     * Replay of the inputs recorded so far
+     * @param numTicks number of ticks run since the start of the game
+     */
+    public Replay toReplay(long numTicks) {
+        return new Replay(seed, numTicks, events);
+    }
+}
@@ -0,0 +1,48 @@
+package spaceinvaders.stats;
+
+/**
+ * Runtime metrics of the running game, registered in JMX as PerformanceStats.OBJECT_NAME.
+ * Values are updated a few times per second, see PerformanceStats.
+ */
+public interface PerformanceMXBean {
+    /**
+     * Frames per second over the last frames
+     */
+    double getFps();
+
+    /**
+     * Median duration of the last frames in milliseconds
+     */
+    double getFrameTimeP50();
+
+    /**
+     * 99th percentile of the duration of the last frames in milliseconds
+     */
+    double getFrameTimeP99();
+
+    /**
+     * Average time of one simulation tick in milliseconds (time of the processor, not simulation time)
+     */
+    double getTickTime();
+
+    int getMeteors();
+
+    int getProjectiles();
+
+    int getPowerUps();
+
+    /**
+     * Memory allocated by the JavaFX thread in megabytes per second, -1 if the JVM doesn't measure it
+     */
+    double getAllocationRate();
+
+    /**
+     * Number of garbage collections since the start of the JVM
+     */
+    long getGcCount();
+
+    /**
+     * Resolution of the game canvas relative to the full resolution, below 1 when the frames are over the budget
+     */
+    double getRenderScale();
+}
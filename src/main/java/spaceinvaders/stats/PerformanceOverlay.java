@@ -0,0 +1,85 @@
+package spaceinvaders.stats;
+
+import javafx.geometry.VPos;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import spaceinvaders.NodeManager;
+
+/**
+ * Small panel with the metrics of PerformanceStats over the game.
+ * <p>
+ * The panel is one canvas of a fixed size that is redrawn only after a sample of the stats
+ * (a few times per second) and only while it is visible, so it doesn't change the metrics it shows.
+ * Uses the default JavaFX font, so it doesn't depend on the resources.
+ */
+public class PerformanceOverlay implements NodeManager {
+    private static final double WIDTH = 200;
+    private static final double HEIGHT = 112;
+    private static final double PADDING = 6;
+    private static final double LINE_HEIGHT = 14;
+    private static final Color BACKGROUND_COLOR = Color.rgb(0, 0, 0, 0.6);
+    private static final Color TEXT_COLOR = Color.LIME;
+    private static final Font FONT = Font.font(11);
+
+    private final Canvas canvas;
+    private final PerformanceStats stats;
+
+    public PerformanceOverlay(PerformanceStats stats) {
+        this.stats = stats;
+
+        canvas = new Canvas(WIDTH, HEIGHT);
+        canvas.setMouseTransparent(true);
+        canvas.setVisible(false);
+
+        stats.setOnSampleAction(this::redraw);
+    }
+
+    @Override
+    public Node getNode() {
+        return canvas;
+    }
+
+    public boolean isVisible() {
+        return canvas.isVisible();
+    }
+
+    public void setVisible(boolean isVisible) {
+        canvas.setVisible(isVisible);
+        redraw();
+    }
+
+    public void toggle() {
+        setVisible(!isVisible());
+    }
+
+    private void redraw() {
+        if (!canvas.isVisible())
+            return;
+
+        PerformanceStats.Snapshot snapshot = stats.getSnapshot();
+        GraphicsContext graphicsContext = canvas.getGraphicsContext2D();
+
+        graphicsContext.clearRect(0, 0, WIDTH, HEIGHT);
+        graphicsContext.setFill(BACKGROUND_COLOR);
+        graphicsContext.fillRect(0, 0, WIDTH, HEIGHT);
+
+        graphicsContext.setFill(TEXT_COLOR);
+        graphicsContext.setFont(FONT);
+        graphicsContext.setTextBaseline(VPos.TOP);
+        String[] lines = {
+                String.format("FPS %.1f", snapshot.fps()),
+                String.format("frame p50 %.2f ms  p99 %.2f ms", snapshot.frameTimeP50(), snapshot.frameTimeP99()),
+                String.format("tick %.3f ms  render scale %.2f", snapshot.tickTime(), snapshot.renderScale()),
+                String.format("meteors %d  shots %d  power-ups %d",
+                        snapshot.meteors(), snapshot.projectiles(), snapshot.powerUps()),
+                snapshot.allocationRate() < 0 ? "allocation n/a"
+                        : String.format("allocation %.2f MB/s", snapshot.allocationRate()),
+                String.format("GC count %d", snapshot.gcCount())
+        };
+        for (int i = 0; i < lines.length; i++)
+            graphicsContext.fillText(lines[i], PADDING, PADDING + i * LINE_HEIGHT);
+    }
+}
@@ -0,0 +1,239 @@
+package spaceinvaders.stats;
+
+import spaceinvaders.FrameClock;
+import spaceinvaders.game.Simulation;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects the runtime metrics of the game on the JavaFX thread.
+ * <p>
+ * Every frame of the frame clock only stores the frame duration in a ring buffer. Every SAMPLE_INTERVAL the metrics
+ * are calculated (percentiles of the last FRAME_WINDOW frames, the tick time, the entity counts,
+ * the allocation rate of the JavaFX thread, the number of garbage collections and the render scale of the game)
+ * and published as one immutable
+ * snapshot, which is read by the JMX bean and the overlay from any thread.
+ * <p>
+ * Frames are measured only between start and stop (during a game), so the frame clock doesn't run for the metrics
+ * alone while the menu is shown. The last snapshot stays readable after stop.
+ */
+public class PerformanceStats implements PerformanceMXBean {
+    public static final String OBJECT_NAME = "spaceinvaders:type=Performance";
+
+    private static final double SAMPLE_INTERVAL = 250; //in milliseconds
+    private static final int FRAME_WINDOW = 120; //number of frames for the fps and the percentiles
+    private static final double BYTES_IN_MEGABYTE = 1024 * 1024;
+
+    /**
+     * Metrics of one sample
+     */
+    public record Snapshot(double fps, double frameTimeP50, double frameTimeP99, double tickTime,
+                           int meteors, int projectiles, int powerUps, double allocationRate, long gcCount,
+                           double renderScale) {
+    }
+
+    private final double[] frameTimes = new double[FRAME_WINDOW];
+    private final double[] sortedFrameTimes = new double[FRAME_WINDOW];
+    private int numFrames;
+    private int nextFrame;
+
+    private double timeSinceSample;
+    private long tickTime; //in nanoseconds since the last sample
+    private int numTicks;
+
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final List<GarbageCollectorMXBean> gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+    private long lastAllocatedBytes = -1;
+
+    private final FrameClock frameClock;
+    private final FrameClock.FrameListener frameListener = this::onFrame;
+    private boolean isRunning;
+
+    private Simulation simulation;
+    private double renderScale = 1;
+    private Runnable onSampleAction;
+
+    private volatile Snapshot snapshot = new Snapshot(0, 0, 0, 0, 0, 0, 0, -1, 0, 1);
+
+    public PerformanceStats(FrameClock frameClock) {
+        this.frameClock = frameClock;
+
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sunBean && sunBean.isThreadAllocatedMemorySupported()) {
+            sunBean.setThreadAllocatedMemoryEnabled(true);
+            threadBean = sunBean;
+        }
+        else {
+            threadBean = null;
+        }
+    }
+
+    /**
+     * Measure every frame of the frame clock
+     */
+    public void start() {
+        if (isRunning)
+            return;
+        isRunning = true;
+        timeSinceSample = 0;
+        lastAllocatedBytes = -1; //the allocations between the games are not counted
+        frameClock.addListener(frameListener);
+    }
+
+    /**
+     * Stop measuring, the last snapshot is kept
+     */
+    public void stop() {
+        if (!isRunning)
+            return;
+        isRunning = false;
+        frameClock.removeListener(frameListener);
+    }
+
+    /**
+     * Set the simulation whose entities are counted, null means no entities
+     */
+    public void setSimulation(Simulation simulation) {
+        this.simulation = simulation;
+    }
+
+    /**
+     * Set the current render scale of the game (see Game.getRenderScale)
+     */
+    public void setRenderScale(double renderScale) {
+        this.renderScale = renderScale;
+    }
+
+    /**
+     * Set the function that is called on the JavaFX thread after every sample
+     */
+    public void setOnSampleAction(Runnable onSampleAction) {
+        this.onSampleAction = onSampleAction;
+    }
+
+    /**
+     * Add the ticks of a frame
+     * @param ticks number of the simulation ticks
+     * @param time time of all the ticks in nanoseconds
+     */
+    public void recordTicks(int ticks, long time) {
+        numTicks += ticks;
+        tickTime += time;
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    private void onFrame(double deltaTime) {
+        if (deltaTime <= 0)
+            return;
+
+        frameTimes[nextFrame] = deltaTime;
+        nextFrame = (nextFrame + 1) % FRAME_WINDOW;
+        numFrames = Math.min(numFrames + 1, FRAME_WINDOW);
+
+        timeSinceSample += deltaTime;
+        if (timeSinceSample >= SAMPLE_INTERVAL) {
+            sample();
+            timeSinceSample = 0;
+        }
+    }
+
+    private void sample() {
+        //frame times
+        double totalTime = 0;
+        for (int i = 0; i < numFrames; i++)
+            totalTime += frameTimes[i];
+        System.arraycopy(frameTimes, 0, sortedFrameTimes, 0, numFrames);
+        Arrays.sort(sortedFrameTimes, 0, numFrames);
+
+        //allocation of the JavaFX thread since the last sample
+        double allocationRate = -1;
+        if (threadBean != null) {
+            long allocatedBytes = threadBean.getCurrentThreadAllocatedBytes();
+            if (lastAllocatedBytes >= 0)
+                allocationRate = (allocatedBytes - lastAllocatedBytes) / BYTES_IN_MEGABYTE / (timeSinceSample / 1000);
+            lastAllocatedBytes = allocatedBytes;
+        }
+
+        long gcCount = 0;
+        for (GarbageCollectorMXBean gcBean : gcBeans)
+            gcCount += Math.max(0, gcBean.getCollectionCount());
+
+        snapshot = new Snapshot(numFrames * 1000 / totalTime,
+                percentile(50), percentile(99),
+                numTicks == 0 ? 0 : tickTime / 1e6 / numTicks,
+                simulation == null ? 0 : simulation.getMeteors().size(),
+                simulation == null ? 0 : simulation.getProjectiles().size(),
+                simulation == null ? 0 : simulation.getPowerUps().size(),
+                allocationRate, gcCount, renderScale);
+        numTicks = 0;
+        tickTime = 0;
+
+        if (onSampleAction != null)
+            onSampleAction.run();
+    }
+
+    /**
+     * Nearest-rank percentile of the sorted frame times
+     */
+    private double percentile(double percentile) {
+        int rank = (int) Math.ceil(percentile / 100 * numFrames);
+        return sortedFrameTimes[Math.max(0, Math.min(numFrames - 1, rank - 1))];
+    }
+
+    @Override
+    public double getFps() {
+        return snapshot.fps();
+    }
+
+    @Override
+    public double getFrameTimeP50() {
+        return snapshot.frameTimeP50();
+    }
+
+    @Override
+    public double getFrameTimeP99() {
+        return snapshot.frameTimeP99();
+    }
+
+    @Override
+    public double getTickTime() {
+        return snapshot.tickTime();
+    }
+
+    @Override
+    public int getMeteors() {
+        return snapshot.meteors();
+    }
+
+    @Override
+    public int getProjectiles() {
+        return snapshot.projectiles();
+    }
+
+    @Override
+    public int getPowerUps() {
+        return snapshot.powerUps();
+    }
+
+    @Override
+    public double getAllocationRate() {
+        return snapshot.allocationRate();
+    }
+
+    @Override
+    public long getGcCount() {
+        return snapshot.gcCount();
+    }
+
+    @Override
+    public double getRenderScale() {
+        return snapshot.renderScale();
+    }
+}
@@ -0,0 +1,164 @@
+package spaceinvaders.stress;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Result of a stress test: frame time percentiles and dropped frames of every stage and of the whole test,
+ * and the number of entities at which the frame rate fell below the target.
+ * A stage rendered at a lower resolution (see DynamicResolution) doesn't hold the target, even at the target FPS.
+ */
+public class StressReport {
+    //a stage holds the target frame rate if its frame rate is at least this part of the target
+    //and it was rendered at the full resolution
+    private static final double FPS_TOLERANCE = 0.95;
+
+    /**
+     * Frames of one stage, the entity counts and the render scale are averages over the frames
+     * @param droppedFrames number of refresh intervals without a new frame
+     */
+    public record StageResult(String name, int frames, double fps, double frameTimeP50, double frameTimeP95,
+                              double frameTimeP99, double frameTimeMax, int droppedFrames,
+                              int meteors, int projectiles, int powerUps, double renderScale) {
+        public int entities() {
+            return meteors + projectiles + powerUps;
+        }
+    }
+
+    private final String scenario;
+    private final double targetFps;
+    private final List<StageResult> stages;
+
+    //all frames of the test
+    private final int frames;
+    private final double frameTimeP50;
+    private final double frameTimeP95;
+    private final double frameTimeP99;
+    private final double frameTimeMax;
+    private final int droppedFrames;
+
+    /**
+     * @param frameTimes durations of all frames of the test in milliseconds, sorted in place
+     */
+    StressReport(String scenario, double targetFps, List<StageResult> stages, double[] frameTimes, int numFrames) {
+        this.scenario = scenario;
+        this.targetFps = targetFps;
+        this.stages = List.copyOf(stages);
+
+        frames = numFrames;
+        droppedFrames = countDroppedFrames(frameTimes, 0, numFrames, targetFps);
+        Arrays.sort(frameTimes, 0, numFrames);
+        frameTimeP50 = percentile(frameTimes, 0, numFrames, 50);
+        frameTimeP95 = percentile(frameTimes, 0, numFrames, 95);
+        frameTimeP99 = percentile(frameTimes, 0, numFrames, 99);
+        frameTimeMax = numFrames == 0 ? 0 : frameTimes[numFrames - 1];
+    }
+
+    public List<StageResult> getStages() {
+        return stages;
+    }
+
+    public double getTargetFps() {
+        return targetFps;
+    }
+
+    public int getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * First stage that didn't hold the target frame rate, null if all stages held it
+     */
+    public StageResult getBrokenStage() {
+        for (StageResult stage : stages) {
+            if (!isHeld(stage))
+                return stage;
+        }
+        return null;
+    }
+
+    /**
+     * Last stage that held the target frame rate before the first stage that didn't, null if the first stage didn't
+     */
+    public StageResult getLastHeldStage() {
+        StageResult lastHeld = null;
+        for (StageResult stage : stages) {
+            if (!isHeld(stage))
+                break;
+            lastHeld = stage;
+        }
+        return lastHeld;
+    }
+
+    /**
+     * Report as a table of the stages with the summary and the machine
+     */
+    public String format() {
+        StringBuilder builder = new StringBuilder(String.format("Stress report: %s scenario, target %.0f FPS%n",
+                scenario, targetFps));
+        builder.append(String.format("  machine: %s %s, %d processors, Java %s, JavaFX %s%n",
+                System.getProperty("os.name"), System.getProperty("os.arch"),
+                Runtime.getRuntime().availableProcessors(), System.getProperty("java.version"),
+                System.getProperty("javafx.runtime.version", "?")));
+        builder.append(String.format("  %-16s %8s %8s %7s %9s %7s %7s %8s %8s %8s %8s %8s %6s%n",
+                "stage", "entities", "meteors", "shots", "power-ups", "frames", "FPS",
+                "p50, ms", "p95, ms", "p99, ms", "max, ms", "dropped", "scale"));
+        for (StageResult stage : stages) {
+            builder.append(String.format("  %-16s %8d %8d %7d %9d %7d %7.1f %8.2f %8.2f %8.2f %8.2f %8d %6.2f%s%n",
+                    stage.name(), stage.entities(), stage.meteors(), stage.projectiles(), stage.powerUps(),
+                    stage.frames(), stage.fps(), stage.frameTimeP50(), stage.frameTimeP95(), stage.frameTimeP99(),
+                    stage.frameTimeMax(), stage.droppedFrames(), stage.renderScale(), isHeld(stage) ? "" : "  *"));
+        }
+
+        builder.append(String.format("  all stages: %d frames, p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms, "
+                        + "%d dropped frames%n",
+                frames, frameTimeP50, frameTimeP95, frameTimeP99, frameTimeMax, droppedFrames));
+
+        StageResult broken = getBrokenStage();
+        StageResult lastHeld = getLastHeldStage();
+        if (broken == null) {
+            builder.append(String.format("  %.0f FPS held at all stages, up to %d entities%n",
+                    targetFps, stages.get(stages.size() - 1).entities()));
+        }
+        else {
+            builder.append(String.format("  %.0f FPS broke at %d entities (%s)", targetFps, broken.entities(),
+                    broken.name()));
+            if (lastHeld != null)
+                builder.append(String.format(", held up to %d entities (%s)", lastHeld.entities(), lastHeld.name()));
+            builder.append(String.format("%n"));
+        }
+        return builder.toString();
+    }
+
+    public void write(Path path) throws IOException {
+        Files.writeString(path, format());
+    }
+
+    private boolean isHeld(StageResult stage) {
+        return stage.fps() >= targetFps * FPS_TOLERANCE && stage.renderScale() >= 1;
+    }
+
+    /**
+     * Number of refresh intervals of the target frame rate that passed without a new frame
+     */
+    static int countDroppedFrames(double[] frameTimes, int from, int to, double targetFps) {
+        double interval = 1000 / targetFps;
+        int dropped = 0;
+        for (int i = from; i < to; i++)
+            dropped += Math.max(0, (int) Math.round(frameTimes[i] / interval) - 1);
+        return dropped;
+    }
+
+    /**
+     * Nearest-rank percentile of the sorted range of the frame times
+     */
+    static double percentile(double[] sortedFrameTimes, int from, int to, double percentile) {
+        if (from == to)
+            return 0;
+        int rank = (int) Math.ceil(percentile / 100 * (to - from));
+        return sortedFrameTimes[from + Math.max(0, Math.min(to - from - 1, rank - 1))];
+    }
+}
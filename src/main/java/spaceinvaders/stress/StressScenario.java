@@ -0,0 +1,69 @@
+package spaceinvaders.stress;
+
+import spaceinvaders.game.GameConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Script of a stress test: the balance of the game and the stages that are played one after another.
+ * Every stage sets the number of meteors and the weapon level and can spawn a burst of power-ups at its start.
+ * @param config balance of the game, e.g. the shot delay of the maximum fire rate
+ * @param parallelThreshold stores with at least this number of entities are moved in parallel on the common pool
+ *                          (see Simulation.setParallelUpdate), 0 means that all stores are moved sequentially
+ */
+public record StressScenario(String name, GameConfig config, int parallelThreshold, List<Stage> stages) {
+    private static final double STAGE_DURATION = 5000; //in milliseconds
+    private static final int MAX_WEAPON_LEVEL = 12;
+    private static final int POWER_UP_BURST = 200; //power-ups of every type
+    private static final int FIRST_RAMP_METEORS = 50;
+    private static final int MAX_RAMP_METEORS = 12_800;
+    private static final int PARALLEL_THRESHOLD = 10_000;
+
+    /**
+     * @param duration duration of the stage in milliseconds of real time
+     * @param numMeteors number of meteors during the stage
+     * @param weaponLevel level of the weapon, can be above the maximum level of the normal weapon
+     * @param powerUpsPerType number of power-ups of every type spawned at the start of the stage
+     */
+    public record Stage(String name, double duration, int numMeteors, int weaponLevel, int powerUpsPerType) {
+        public Stage {
+            if (duration <= 0)
+                throw new IllegalArgumentException("Duration of a stage must be positive: " + duration);
+            if (numMeteors < 1)
+                throw new IllegalArgumentException("Number of meteors must be positive: " + numMeteors);
+            if (weaponLevel < 1)
+                throw new IllegalArgumentException("Weapon level must be positive: " + weaponLevel);
+            if (powerUpsPerType < 0)
+                throw new IllegalArgumentException("Number of power-ups must not be negative: " + powerUpsPerType);
+        }
+    }
+
+    public StressScenario {
+        if (parallelThreshold < 0)
+            throw new IllegalArgumentException("Parallel threshold must not be negative: " + parallelThreshold);
+        if (stages.isEmpty())
+            throw new IllegalArgumentException("Scenario must have stages");
+        stages = List.copyOf(stages);
+    }
+
+    /**
+     * The default scenario: the normal game, the maximum fire rate with a high level weapon,
+     * a burst of all power-ups and then the number of meteors doubled on every stage.
+     * The weapon fires on every tick and the meteors don't speed up with the levels.
+     * The largest meteor stages are moved in parallel.
+     */
+    public static StressScenario standard() {
+        GameConfig config = GameConfig.DEFAULT.withShotDelay(1000.0 / 60).withMultiplierByLevel(1);
+        int numMeteors = GameConfig.DEFAULT.numMeteors();
+
+        List<Stage> stages = new ArrayList<>();
+        stages.add(new Stage("baseline", STAGE_DURATION, numMeteors, 1, 0));
+        stages.add(new Stage("max fire rate", STAGE_DURATION, numMeteors, MAX_WEAPON_LEVEL, 0));
+        stages.add(new Stage("power-up burst", STAGE_DURATION, numMeteors, MAX_WEAPON_LEVEL, POWER_UP_BURST));
+        for (int rampMeteors = FIRST_RAMP_METEORS; rampMeteors <= MAX_RAMP_METEORS; rampMeteors *= 2)
+            stages.add(new Stage("meteors " + rampMeteors, STAGE_DURATION, rampMeteors, MAX_WEAPON_LEVEL, 0));
+
+        return new StressScenario("standard", config, PARALLEL_THRESHOLD, stages);
+    }
+}
@@ -0,0 +1,169 @@
+package spaceinvaders.stress;
+
+import spaceinvaders.FrameClock;
+import spaceinvaders.game.Game;
+import spaceinvaders.game.Ship;
+import spaceinvaders.game.Simulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Plays a stress scenario in the running game and measures every frame of the frame clock.
+ * <p>
+ * The ship is invulnerable and plays itself: it always shoots and changes the direction at random every second.
+ * The frames of the first WARM_UP_TIME are not measured (compilation of the hot code, caches of the sprites).
+ * At the start of every stage the number of meteors and the weapon level of the stage are set and the power-ups
+ * of the stage are spawned. The scenario ends after the last stage, or earlier after a stage below MIN_FPS
+ * (the next stages would only be slower), then the game ends and the report is passed to the finish action.
+ */
+public class StressTest {
+    private static final double DIRECTION_CHANGE_TIME = 1000; //in milliseconds
+    private static final double MIN_FPS = 10;
+    private static final double WARM_UP_TIME = 2000; //in milliseconds
+    private static final int INITIAL_FRAMES = 4096;
+
+    private final Game game;
+    private final FrameClock frameClock;
+    private final StressScenario scenario;
+    private final double targetFps;
+    private final Random random;
+    private final FrameClock.FrameListener frameListener = this::onFrame;
+    private Consumer<StressReport> onFinishedAction;
+
+    //durations of all frames of the test, the frames of the current stage start at stageStart
+    private double[] frameTimes = new double[INITIAL_FRAMES];
+    private int numFrames;
+    private int stageStart;
+    private double warmUpTime;
+
+    private int stage;
+    private double stageTime;
+    private double timeToDirectionChange;
+
+    //sums over the frames of the current stage
+    private long meteorSum;
+    private long projectileSum;
+    private long powerUpSum;
+    private double renderScaleSum;
+
+    private final List<StressReport.StageResult> results = new ArrayList<>();
+
+    /**
+     * @param game game created with the config of the scenario
+     * @param frameClock clock of the game, its frames are measured
+     * @param targetFps frame rate that the stages should hold, usually the refresh rate of the display
+     * @param seed seed of the game and of the moves of the ship, so runs on different machines are the same
+     */
+    public StressTest(Game game, FrameClock frameClock, StressScenario scenario, double targetFps, long seed) {
+        if (targetFps <= 0)
+            throw new IllegalArgumentException("Target FPS must be positive: " + targetFps);
+
+        this.game = game;
+        this.frameClock = frameClock;
+        this.scenario = scenario;
+        this.targetFps = targetFps;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Set the function that is called with the report after the last stage
+     */
+    public void setOnFinishedAction(Consumer<StressReport> onFinishedAction) {
+        this.onFinishedAction = onFinishedAction;
+    }
+
+    /**
+     * Start a new game and play the first stage
+     */
+    public void start() {
+        game.startGame(random.nextLong());
+        game.getSimulation().setInvulnerable(true);
+        game.setFireMode(true);
+
+        results.clear();
+        numFrames = 0;
+        warmUpTime = 0;
+        startStage(0);
+        frameClock.addListener(frameListener);
+    }
+
+    private void onFrame(double deltaTime) {
+        if (warmUpTime < WARM_UP_TIME) {
+            warmUpTime += deltaTime;
+            return;
+        }
+
+        if (numFrames == frameTimes.length)
+            frameTimes = Arrays.copyOf(frameTimes, 2 * frameTimes.length);
+        frameTimes[numFrames++] = deltaTime;
+
+        Simulation simulation = game.getSimulation();
+        meteorSum += simulation.getMeteors().size();
+        projectileSum += simulation.getProjectiles().size();
+        powerUpSum += simulation.getPowerUps().size();
+        renderScaleSum += game.getRenderScale();
+
+        //auto-play
+        timeToDirectionChange -= deltaTime;
+        if (timeToDirectionChange <= 0) {
+            Ship.Direction[] directions = Ship.Direction.values();
+            game.setPlayerShipDirection(directions[random.nextInt(directions.length)]);
+            timeToDirectionChange = DIRECTION_CHANGE_TIME;
+        }
+
+        stageTime += deltaTime;
+        if (stageTime >= scenario.stages().get(stage).duration())
+            finishStage();
+    }
+
+    private void startStage(int stage) {
+        this.stage = stage;
+        stageStart = numFrames;
+        stageTime = 0;
+        meteorSum = 0;
+        projectileSum = 0;
+        powerUpSum = 0;
+        renderScaleSum = 0;
+
+        StressScenario.Stage script = scenario.stages().get(stage);
+        Simulation simulation = game.getSimulation();
+        simulation.setNumMeteors(script.numMeteors());
+        simulation.setWeaponLevel(script.weaponLevel());
+        if (script.powerUpsPerType() > 0)
+            simulation.spawnPowerUps(script.powerUpsPerType());
+    }
+
+    private void finishStage() {
+        int frames = numFrames - stageStart;
+        int droppedFrames = StressReport.countDroppedFrames(frameTimes, stageStart, numFrames, targetFps);
+        Arrays.sort(frameTimes, stageStart, numFrames); //the order of the frames is not needed anymore
+
+        double fps = frames * 1000 / stageTime;
+        results.add(new StressReport.StageResult(scenario.stages().get(stage).name(), frames, fps,
+                StressReport.percentile(frameTimes, stageStart, numFrames, 50),
+                StressReport.percentile(frameTimes, stageStart, numFrames, 95),
+                StressReport.percentile(frameTimes, stageStart, numFrames, 99),
+                frameTimes[numFrames - 1], droppedFrames,
+                (int) (meteorSum / frames), (int) (projectileSum / frames), (int) (powerUpSum / frames),
+                renderScaleSum / frames));
+
+        if (stage + 1 < scenario.stages().size() && fps >= MIN_FPS)
+            startStage(stage + 1);
+        else
+            finish();
+    }
+
+    private void finish() {
+        frameClock.removeListener(frameListener);
+        game.getSimulation().setInvulnerable(false);
+        game.endGame();
+
+        StressReport report = new StressReport(scenario.name(), targetFps, results, frameTimes, numFrames);
+        if (onFinishedAction != null)
+            onFinishedAction.accept(report);
+    }
+}
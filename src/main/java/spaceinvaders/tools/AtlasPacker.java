@@ -0,0 +1,149 @@
+package spaceinvaders.tools;
+
+import spaceinvaders.AssetPack;
+import spaceinvaders.PngImage;
+import spaceinvaders.Resource;
+import spaceinvaders.game.collision.HitMask;
+import spaceinvaders.game.collision.HitMaskCache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Build step that packs the sprite images into one texture atlas and writes the asset pack (see AssetPack).
+ * Run by Maven in the process-classes phase, so the pack is next to the classes and in the jar.
+ * <p>
+ * The images are placed on shelves: sorted by height, left to right, a new shelf starts when the row is full.
+ * Regions are separated by PADDING transparent pixels, so filtering doesn't blend neighbouring sprites.
+ * Resources with the same file (e.g. LOGO and LIVE) share one region.
+ * Hit masks are baked only for the images in MASKED, the other entries have no masks.
+ * Usage: AtlasPacker output-file
+ */
+public class AtlasPacker {
+    private static final int ATLAS_WIDTH = 512;
+    private static final int PADDING = 2;
+
+    /**
+     * Images that are not sprites: the background is drawn as a repeating pattern, the font is not an image
+     */
+    private static final Set<Resource> EXCLUDED = EnumSet.of(Resource.SPACE_BACKGROUND, Resource.MENU_FONT);
+
+    /**
+     * Images that are tested with hit masks (see Simulation.handleCollisions),
+     * power-ups are collected by their bounds and the HUD and menu images never collide
+     */
+    private static final Set<Resource> MASKED = EnumSet.of(Resource.MAIN_SHIP, Resource.SHOT,
+            Resource.METEOR_ONE, Resource.METEOR_TWO, Resource.METEOR_THREE);
+
+    private record Placement(Resource resource, PngImage image, int x, int y) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: AtlasPacker output-file");
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+
+        //one image per file, resources with the same file get the same region
+        Map<String, Resource> pathToResource = new LinkedHashMap<>();
+        for (Resource resource : Resource.values()) {
+            if (!EXCLUDED.contains(resource))
+                pathToResource.putIfAbsent(resource.getPath(), resource);
+        }
+
+        List<Resource> resources = new ArrayList<>(pathToResource.values());
+        resources.sort(Comparator.comparingInt((Resource resource) -> PngImage.of(resource).getHeight()).reversed());
+
+        //place images on shelves
+        Map<String, Placement> pathToPlacement = new HashMap<>();
+        int shelfX = PADDING;
+        int shelfY = PADDING;
+        int shelfHeight = 0;
+        for (Resource resource : resources) {
+            PngImage image = PngImage.of(resource);
+            if (image.getWidth() + 2 * PADDING > ATLAS_WIDTH)
+                throw new IllegalStateException(resource + " is wider than the atlas");
+
+            if (shelfX + image.getWidth() + PADDING > ATLAS_WIDTH) {
+                shelfX = PADDING;
+                shelfY += shelfHeight + PADDING;
+                shelfHeight = 0;
+            }
+            pathToPlacement.put(resource.getPath(), new Placement(resource, image, shelfX, shelfY));
+            shelfX += image.getWidth() + PADDING;
+            shelfHeight = Math.max(shelfHeight, image.getHeight());
+        }
+        int atlasHeight = shelfY + shelfHeight + PADDING;
+
+        //copy pixels, premultiplied, so the atlas can be written to an image without conversion
+        int[] atlas = new int[ATLAS_WIDTH * atlasHeight];
+        for (Placement placement : pathToPlacement.values()) {
+            PngImage image = placement.image();
+            int[] pixels = image.getPixels();
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    atlas[(placement.y() + y) * ATLAS_WIDTH + placement.x() + x] =
+                            premultiply(pixels[y * image.getWidth() + x]);
+                }
+            }
+        }
+
+        //write the pack, every resource gets an entry
+        List<Resource> entries = new ArrayList<>();
+        for (Resource resource : Resource.values()) {
+            if (!EXCLUDED.contains(resource))
+                entries.add(resource);
+        }
+
+        Path output = Path.of(args[0]);
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        try (OutputStream fileStream = Files.newOutputStream(output);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileStream))) {
+            out.writeInt(AssetPack.MAGIC);
+            out.writeInt(AssetPack.VERSION);
+            out.writeInt(ATLAS_WIDTH);
+            out.writeInt(atlasHeight);
+            out.writeInt(HitMaskCache.ROTATION_STEP);
+            out.writeInt(HitMaskCache.MASK_RESOLUTION);
+            out.writeInt(entries.size());
+
+            Map<String, HitMask[]> pathToMasks = new HashMap<>();
+            for (Resource resource : entries) {
+                Placement placement = pathToPlacement.get(resource.getPath());
+                out.writeUTF(resource.name());
+                out.writeInt(placement.x());
+                out.writeInt(placement.y());
+                out.writeInt(placement.image().getWidth());
+                out.writeInt(placement.image().getHeight());
+
+                HitMask[] masks = !MASKED.contains(resource) ? new HitMask[0]
+                        : pathToMasks.computeIfAbsent(resource.getPath(),
+                                path -> HitMaskCache.buildMasks(placement.image()));
+                out.writeInt(masks.length);
+                for (HitMask mask : masks)
+                    mask.write(out);
+            }
+
+            for (int pixel : atlas)
+                out.writeInt(pixel);
+        }
+
+        System.out.printf("Packed %d images into a %dx%d atlas (%d bytes) in %d ms%n", pathToPlacement.size(),
+                ATLAS_WIDTH, atlasHeight, Files.size(output), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static int premultiply(int argb) {
+        int alpha = argb >>> 24;
+        int red = (argb >> 16 & 0xFF) * alpha / 255;
+        int green = (argb >> 8 & 0xFF) * alpha / 255;
+        int blue = (argb & 0xFF) * alpha / 255;
+        return alpha << 24 | red << 16 | green << 8 | blue;
+    }
+}
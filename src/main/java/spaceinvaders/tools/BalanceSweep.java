@@ -0,0 +1,255 @@
+package spaceinvaders.tools;
+
+import spaceinvaders.game.GameConfig;
+import spaceinvaders.game.Ship;
+import spaceinvaders.game.Simulation;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Plays many headless games for every combination of the balance parameters and writes the distributions
+ * of the survival time and the score (see GameConfig).
+ * <p>
+ * Sessions run in parallel on a fork-join pool, every session has its own simulation and its own seed.
+ * Session i of every config uses the same seed, so the configs are compared on the same meteors
+ * and the same moves of the player. The results don't depend on the number of threads.
+ * <p>
+ * Usage: BalanceSweep [--option value]...
+ *  --meteors, --lives, --score-up-bonus, --shot-delay, --level-duration, --multiplier
+ *      comma-separated values of the parameter, the default is the value of GameConfig.DEFAULT
+ *  --sessions   games per config (default 1000)
+ *  --player     random (changes direction every second), sweep (left and right) or still (default random)
+ *  --tick       tick duration in milliseconds (default 16.67)
+ *  --max-time   maximum game time in seconds, longer games are stopped and counted as capped (default 600)
+ *  --seed       seed of the session seeds (default 1)
+ *  --threads    number of threads (default all processors)
+ *  --out        summary CSV, one row per config (default balance.csv)
+ *  --sessions-out  CSV with every session (not written by default)
+ */
+public class BalanceSweep {
+    private static final double DIRECTION_CHANGE_TIME = 1000; //in milliseconds
+    private static final double SWEEP_TIME = 2000; //in milliseconds, time of one sweep to a side
+    private static final double[] PERCENTILES = {10, 50, 90};
+    private static final long SEED_INCREMENT = 0x9E3779B97F4A7C15L;
+    private static final Set<String> OPTIONS = Set.of("meteors", "lives", "score-up-bonus", "shot-delay",
+            "level-duration", "multiplier", "sessions", "player", "tick", "max-time", "seed", "threads", "out",
+            "sessions-out");
+
+    private enum Player {
+        RANDOM,
+        SWEEP,
+        STILL
+    }
+
+    /**
+     * Result of one game
+     * @param survivalTime game time until the game was over or stopped, in seconds
+     */
+    private record Session(int config, long seed, double survivalTime, int score, int level, boolean isCapped) {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        Map<String, String> options = parseOptions(args);
+
+        List<GameConfig> configs = createGrid(options);
+        int sessionsPerConfig = Integer.parseInt(options.getOrDefault("sessions", "1000"));
+        if (sessionsPerConfig <= 0)
+            throw new IllegalArgumentException("Number of sessions must be positive: " + sessionsPerConfig);
+        Player player = Player.valueOf(options.getOrDefault("player", "random").toUpperCase(Locale.ROOT));
+        double tickTime = Double.parseDouble(options.getOrDefault("tick", String.valueOf(1000.0 / 60)));
+        double maxTime = Double.parseDouble(options.getOrDefault("max-time", "600")) * 1000;
+        long baseSeed = Long.parseLong(options.getOrDefault("seed", "1"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        if (threads <= 0)
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+
+        int numSessions = configs.size() * sessionsPerConfig;
+        System.out.printf("%d configs x %d sessions on %d threads%n", configs.size(), sessionsPerConfig, threads);
+
+        Session[] sessions = new Session[numSessions];
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> IntStream.range(0, numSessions).parallel().forEach(i -> {
+                int config = i / sessionsPerConfig;
+                long seed = mix(baseSeed + (i % sessionsPerConfig) * SEED_INCREMENT);
+                sessions[i] = play(config, configs.get(config), seed, player, tickTime, maxTime);
+            })).get();
+        }
+        finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        String summary = formatSummary(configs, sessions, sessionsPerConfig);
+        Path out = Path.of(options.getOrDefault("out", "balance.csv"));
+        Files.writeString(out, summary);
+        if (options.containsKey("sessions-out"))
+            writeSessions(Path.of(options.get("sessions-out")), configs, sessions);
+
+        System.out.print(summary);
+        System.out.printf("%d sessions in %.1f s (%.0f sessions per second), summary written to %s%n",
+                numSessions, seconds, numSessions / seconds, out);
+    }
+
+    /**
+     * Play one game with the bot until it is over or maxTime has passed
+     */
+    private static Session play(int configIndex, GameConfig config, long seed, Player player, double tickTime,
+                                double maxTime) {
+        Simulation simulation = new Simulation(config);
+        simulation.startGame(seed);
+        simulation.setFireMode(true);
+
+        Random playerRandom = new Random(mix(seed));
+        Ship.Direction[] directions = Ship.Direction.values();
+        double timeToDirectionChange = 0;
+        boolean isMovingLeft = false;
+
+        while (!simulation.isGameOver() && simulation.getTime() < maxTime) {
+            timeToDirectionChange -= tickTime;
+            if (timeToDirectionChange <= 0) {
+                switch (player) {
+                    case RANDOM -> {
+                        simulation.setPlayerShipDirection(directions[playerRandom.nextInt(directions.length)]);
+                        timeToDirectionChange = DIRECTION_CHANGE_TIME;
+                    }
+                    case SWEEP -> {
+                        isMovingLeft = !isMovingLeft;
+                        simulation.setPlayerShipDirection(isMovingLeft ? Ship.Direction.LEFT : Ship.Direction.RIGHT);
+                        timeToDirectionChange = SWEEP_TIME;
+                    }
+                    case STILL -> timeToDirectionChange = Double.POSITIVE_INFINITY;
+                }
+            }
+            simulation.tick(tickTime);
+        }
+
+        return new Session(configIndex, seed, simulation.getTime() / 1000, simulation.getScore(),
+                simulation.getLevel(), !simulation.isGameOver());
+    }
+
+    /**
+     * All combinations of the values of the parameters
+     */
+    private static List<GameConfig> createGrid(Map<String, String> options) {
+        GameConfig defaults = GameConfig.DEFAULT;
+        List<GameConfig> grid = List.of(defaults);
+        grid = expand(grid, options.get("meteors"), (config, value) -> config.withNumMeteors(value.intValue()));
+        grid = expand(grid, options.get("lives"), (config, value) -> config.withNumLives(value.intValue()));
+        grid = expand(grid, options.get("score-up-bonus"),
+                (config, value) -> config.withScoreUpBonus(value.intValue()));
+        grid = expand(grid, options.get("shot-delay"), GameConfig::withShotDelay);
+        grid = expand(grid, options.get("level-duration"), GameConfig::withLevelDuration);
+        grid = expand(grid, options.get("multiplier"), GameConfig::withMultiplierByLevel);
+        return grid;
+    }
+
+    private static List<GameConfig> expand(List<GameConfig> grid, String values,
+                                           BiFunction<GameConfig, Double, GameConfig> setter) {
+        if (values == null)
+            return grid;
+
+        List<GameConfig> expanded = new ArrayList<>();
+        for (GameConfig config : grid) {
+            for (String value : values.split(","))
+                expanded.add(setter.apply(config, Double.parseDouble(value.trim())));
+        }
+        return expanded;
+    }
+
+    private static String formatSummary(List<GameConfig> configs, Session[] sessions, int sessionsPerConfig) {
+        StringBuilder builder = new StringBuilder(
+                "meteors,lives,score_up_bonus,shot_delay,level_duration,multiplier,sessions,capped,survival_mean");
+        for (double percentile : PERCENTILES)
+            builder.append(",survival_p").append((int) percentile);
+        builder.append(",survival_max,score_mean");
+        for (double percentile : PERCENTILES)
+            builder.append(",score_p").append((int) percentile);
+        builder.append(",score_max\n");
+
+        for (int config = 0; config < configs.size(); config++) {
+            double[] survivalTimes = new double[sessionsPerConfig];
+            double[] scores = new double[sessionsPerConfig];
+            int capped = 0;
+            for (int i = 0; i < sessionsPerConfig; i++) {
+                Session session = sessions[config * sessionsPerConfig + i];
+                survivalTimes[i] = session.survivalTime();
+                scores[i] = session.score();
+                if (session.isCapped())
+                    capped++;
+            }
+
+            builder.append(formatConfig(configs.get(config)))
+                    .append(',').append(sessionsPerConfig).append(',').append(capped);
+            appendDistribution(builder, survivalTimes);
+            appendDistribution(builder, scores);
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Append the mean, the percentiles and the maximum of the values
+     */
+    private static void appendDistribution(StringBuilder builder, double[] values) {
+        Arrays.sort(values);
+        builder.append(String.format(Locale.ROOT, ",%.2f", Arrays.stream(values).average().orElse(0)));
+        for (double percentile : PERCENTILES) {
+            int rank = (int) Math.ceil(percentile / 100 * values.length);
+            builder.append(String.format(Locale.ROOT, ",%.2f", values[Math.max(0, rank - 1)]));
+        }
+        builder.append(String.format(Locale.ROOT, ",%.2f", values[values.length - 1]));
+    }
+
+    private static void writeSessions(Path path, List<GameConfig> configs, Session[] sessions) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path))) {
+            writer.println("meteors,lives,score_up_bonus,shot_delay,level_duration,multiplier,seed,survival_time,"
+                    + "score,level,capped");
+            for (Session session : sessions) {
+                writer.printf(Locale.ROOT, "%s,%d,%.3f,%d,%d,%b%n", formatConfig(configs.get(session.config())),
+                        session.seed(), session.survivalTime(), session.score(), session.level(), session.isCapped());
+            }
+        }
+    }
+
+    private static String formatConfig(GameConfig config) {
+        return String.format(Locale.ROOT, "%d,%d,%d,%s,%s,%s", config.numMeteors(), config.numLives(),
+                config.scoreUpBonus(), config.shotDelay(), config.levelDuration(), config.multiplierByLevel());
+    }
+
+    /**
+     * Options of the command line, an unknown option is an error (a misspelled option would sweep the defaults)
+     */
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length)
+                throw new IllegalArgumentException("Expected --option value, got: " + args[i]);
+            String option = args[i].substring(2);
+            if (!OPTIONS.contains(option))
+                throw new IllegalArgumentException("Unknown option: " + args[i] + ", expected one of "
+                        + new TreeSet<>(OPTIONS));
+            options.put(option, args[i + 1]);
+        }
+        return options;
+    }
+
+    /**
+     * Mix the bits of the value (SplitMix64 finalizer), so neighbouring values give unrelated seeds
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,104 @@
+package spaceinvaders.tools;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import spaceinvaders.game.TickPhaseEvent;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Prints the latency percentiles of the game loop phases from a flight recording (see TickPhaseEvent).
+ * <p>
+ * Record a session with java -XX:StartFlightRecording=filename=game.jfr,settings=profile ...
+ * and then run PhaseProfile game.jfr. Phases are printed in the order they first appear in the recording.
+ * Usage: PhaseProfile recording.jfr
+ */
+public class PhaseProfile {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    /**
+     * Durations and counters of the events of one phase
+     */
+    private static class Phase {
+        private long[] durations = new long[1024]; //in nanoseconds
+        private int count;
+        private long meteors;
+        private long projectiles;
+        private long projectilesFired;
+        private long collisionsTested;
+
+        void add(RecordedEvent event) {
+            if (count == durations.length)
+                durations = Arrays.copyOf(durations, count * 2);
+            durations[count++] = event.getDuration().toNanos();
+            meteors += event.getInt("meteors");
+            projectiles += event.getInt("projectiles");
+            projectilesFired += event.getInt("projectilesFired");
+            collisionsTested += event.getInt("collisionsTested");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: PhaseProfile recording.jfr");
+            System.exit(1);
+        }
+
+        Map<String, Phase> phases = new LinkedHashMap<>();
+        try (RecordingFile recording = new RecordingFile(Path.of(args[0]))) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                if (event.getEventType().getName().equals(TickPhaseEvent.NAME))
+                    phases.computeIfAbsent(event.getString("phase"), phase -> new Phase()).add(event);
+            }
+        }
+
+        if (phases.isEmpty()) {
+            System.out.println("No " + TickPhaseEvent.NAME + " events in " + args[0]);
+            return;
+        }
+        System.out.print(format(phases));
+    }
+
+    private static String format(Map<String, Phase> phases) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%-16s %8s", "phase", "events"));
+        for (double percentile : PERCENTILES)
+            builder.append(String.format(" %9s", "p" + formatPercentile(percentile)));
+        builder.append(String.format(" %9s %9s %9s %9s %9s%n", "max", "meteors", "shots", "fired", "tested"));
+
+        for (Map.Entry<String, Phase> entry : phases.entrySet()) {
+            Phase phase = entry.getValue();
+            long[] durations = Arrays.copyOf(phase.durations, phase.count);
+            Arrays.sort(durations);
+
+            builder.append(String.format("%-16s %8d", entry.getKey(), phase.count));
+            for (double percentile : PERCENTILES)
+                builder.append(String.format(" %9s", formatMicroseconds(percentile(durations, percentile))));
+            builder.append(String.format(" %9s %9.1f %9.1f %9.2f %9.1f%n",
+                    formatMicroseconds(durations[durations.length - 1]),
+                    (double) phase.meteors / phase.count, (double) phase.projectiles / phase.count,
+                    (double) phase.projectilesFired / phase.count, (double) phase.collisionsTested / phase.count));
+        }
+        builder.append("durations in microseconds, counters are averages per event\n");
+        return builder.toString();
+    }
+
+    /**
+     * Nearest-rank percentile of the sorted values
+     */
+    private static long percentile(long[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    private static String formatMicroseconds(long nanoseconds) {
+        return String.format("%.1f", nanoseconds / 1000.0);
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((int) percentile) : String.valueOf(percentile);
+    }
+}
@@ -0,0 +1,105 @@
+package spaceinvaders.tools;
+
+import spaceinvaders.game.EntityStore;
+import spaceinvaders.game.Meteor;
+import spaceinvaders.game.Projectile;
+import spaceinvaders.game.Simulation;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Prints how the parallel entity update (Simulation.setParallelUpdate) scales from 1 to N threads
+ * and checks that the state after the updates is bit for bit the same as after the sequential update.
+ * <p>
+ * The simulation is filled with meteors and projectiles at random positions, the ship is moved below the canvas.
+ * Only Simulation.updateItems is measured: moving, respawning meteors and removing projectiles.
+ * Usage: UpdateScaling [entities per store] [updates] [max threads]
+ */
+public class UpdateScaling {
+    private static final long SEED = 42;
+    private static final double TICK_TIME = 1000.0 / 60;
+    private static final int THRESHOLD = 10_000;
+    private static final int WARMUP_UPDATES = 50;
+
+    public static void main(String[] args) {
+        int entities = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int updates = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("%d meteors and %d projectiles, %d updates%n", entities, entities, updates);
+        System.out.printf("%8s %12s %8s %10s%n", "threads", "ms/update", "speedup", "identical");
+
+        //sequential run without a pool
+        Simulation sequential = createSimulation(entities);
+        double sequentialTime = run(sequential, updates);
+        long expectedHash = hash(sequential);
+        System.out.printf("%8s %12.3f %8.2f %10s%n", "seq", sequentialTime, 1.0, "yes");
+
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                Simulation simulation = createSimulation(entities);
+                simulation.setParallelUpdate(pool, THRESHOLD);
+                double time = run(simulation, updates);
+                System.out.printf("%8d %12.3f %8.2f %10s%n", threads, time, sequentialTime / time,
+                        hash(simulation) == expectedHash ? "yes" : "NO");
+            }
+            finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Run the warmup and the measured updates
+     * @return average time of a measured update in milliseconds
+     */
+    private static double run(Simulation simulation, int updates) {
+        for (int i = 0; i < WARMUP_UPDATES; i++)
+            simulation.updateItems(TICK_TIME);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < updates; i++)
+            simulation.updateItems(TICK_TIME);
+        return (System.nanoTime() - start) / 1e6 / updates;
+    }
+
+    private static Simulation createSimulation(int entities) {
+        Random random = new Random(SEED);
+        Simulation simulation = new Simulation();
+        simulation.startGame(SEED);
+        simulation.getShips().setPosY(0, 2);
+
+        EntityStore meteors = simulation.getMeteors();
+        while (meteors.size() < entities) {
+            int meteor = Meteor.spawnMeteor(meteors, random, random);
+            meteors.setPosY(meteor, 2 * random.nextDouble() - 1);
+        }
+
+        //projectiles leave the canvas at different times, so some are removed in every update
+        EntityStore projectiles = simulation.getProjectiles();
+        while (projectiles.size() < entities) {
+            int shot = projectiles.add(Simulation.PROJECTILE_TYPE);
+            projectiles.setSize(shot, Projectile.getShotWidth(), Projectile.getShotHeight());
+            projectiles.setPos(shot, random.nextDouble(), 2 * random.nextDouble());
+            projectiles.setSpeedY(shot, Projectile.getShotSpeedY(0));
+        }
+        return simulation;
+    }
+
+    /**
+     * Hash of the positions and the order of all entities
+     */
+    private static long hash(Simulation simulation) {
+        long hash = 17;
+        for (EntityStore store : new EntityStore[]{simulation.getMeteors(), simulation.getProjectiles()}) {
+            hash = hash * 31 + store.size();
+            for (int i = 0; i < store.size(); i++) {
+                hash = hash * 31 + Double.doubleToLongBits(store.getPosX(i));
+                hash = hash * 31 + Double.doubleToLongBits(store.getPosY(i));
+            }
+        }
+        return hash;
+    }
+}
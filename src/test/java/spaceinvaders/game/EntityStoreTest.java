@@ -0,0 +1,97 @@
+package spaceinvaders.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Handles of the entity store follow their entity through swap-removes and become stale when the entity is removed,
+ * also after the slot of the handle was reused more times than the generation can count.
+ */
+class EntityStoreTest {
+    private static final int GENERATIONS = 0x80; //GENERATION_MASK + 1
+
+    @Test
+    void handleFollowsEntityMovedBySwapRemove() {
+        EntityStore store = new EntityStore();
+        int first = store.getHandle(store.add(0));
+        int second = store.getHandle(store.add(1));
+        int last = store.getHandle(store.add(2));
+
+        store.remove(store.indexOf(first));
+
+        assertFalse(store.isAlive(first));
+        assertEquals(-1, store.indexOf(first));
+        assertEquals(0, store.indexOf(last));
+        assertEquals(2, store.getType(store.indexOf(last)));
+        assertEquals(1, store.indexOf(second));
+        assertEquals(1, store.getType(store.indexOf(second)));
+    }
+
+    @Test
+    void handleOfLastEntityIsStaleAfterRemove() {
+        EntityStore store = new EntityStore();
+        int first = store.getHandle(store.add(0));
+        int last = store.getHandle(store.add(1));
+
+        store.remove(store.indexOf(last));
+
+        assertFalse(store.isAlive(last));
+        assertEquals(0, store.indexOf(first));
+    }
+
+    @Test
+    void handleIsStaleAfterSlotIsReused() {
+        EntityStore store = new EntityStore();
+        int removed = store.getHandle(store.add(0));
+        store.remove(0);
+        int added = store.getHandle(store.add(1));
+
+        assertTrue(removed != added);
+        assertFalse(store.isAlive(removed));
+        assertEquals(0, store.indexOf(added));
+    }
+
+    @Test
+    void handlesAreStaleAfterClear() {
+        EntityStore store = new EntityStore();
+        List<Integer> handles = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            handles.add(store.getHandle(store.add(i)));
+
+        store.clear();
+
+        for (int handle : handles)
+            assertFalse(store.isAlive(handle));
+    }
+
+    @Test
+    void handleStaysStaleWhenGenerationWraps() {
+        EntityStore store = new EntityStore(1);
+        List<Integer> removed = new ArrayList<>();
+        Set<Integer> distinct = new HashSet<>();
+
+        //remove and add the only entity several times more than the number of generations
+        store.add(0);
+        for (int i = 0; i < 4 * GENERATIONS; i++) {
+            int handle = store.getHandle(0);
+            assertTrue(handle >= 0, "handle " + handle);
+            assertTrue(distinct.add(handle), "handle " + handle + " is given twice");
+            removed.add(handle);
+
+            store.remove(0);
+            store.add(i + 1);
+
+            assertEquals(0, store.indexOf(store.getHandle(0)));
+            for (int stale : removed)
+                assertFalse(store.isAlive(stale), "handle " + stale + " after " + (i + 1) + " removes");
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package spaceinvaders.game;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The parallel entity update (Simulation.setParallelUpdate) must leave the stores in exactly the same state
+ * as the sequential update: the same entities in the same order with the same positions and handles.
+ */
+class ParallelUpdateTest {
+    private static final long SEED = 42;
+    private static final double TICK_TIME = 1000.0 / 60;
+    private static final int ENTITIES = 50_000; //per store
+    private static final int THRESHOLD = 1_000;
+    private static final int UPDATES = 100;
+    private static final int THREADS = 4;
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void createPool() {
+        pool = new ForkJoinPool(THREADS);
+    }
+
+    @AfterAll
+    static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void parallelUpdateIsTheSameAsSequential() {
+        Simulation sequential = createSimulation();
+        Simulation parallel = createSimulation();
+        parallel.setParallelUpdate(pool, THRESHOLD);
+
+        for (int i = 0; i < UPDATES; i++) {
+            sequential.updateItems(TICK_TIME);
+            parallel.updateItems(TICK_TIME);
+        }
+
+        assertSameState(sequential.getMeteors(), parallel.getMeteors());
+        assertSameState(sequential.getProjectiles(), parallel.getProjectiles());
+    }
+
+    /**
+     * Meteors spread over the canvas and above it, projectiles leave the canvas at different times,
+     * so meteors are respawned and projectiles are removed in every update. The ship is below the canvas.
+     */
+    private static Simulation createSimulation() {
+        Random random = new Random(SEED);
+        Simulation simulation = new Simulation();
+        simulation.startGame(SEED);
+        simulation.getShips().setPosY(0, 2);
+
+        EntityStore meteors = simulation.getMeteors();
+        while (meteors.size() < ENTITIES) {
+            int meteor = Meteor.spawnMeteor(meteors, random, random);
+            meteors.setPosY(meteor, 2 * random.nextDouble() - 1);
+        }
+
+        EntityStore projectiles = simulation.getProjectiles();
+        while (projectiles.size() < ENTITIES) {
+            int shot = projectiles.add(Simulation.PROJECTILE_TYPE);
+            projectiles.setSize(shot, Projectile.getShotWidth(), Projectile.getShotHeight());
+            projectiles.setPos(shot, random.nextDouble(), 2 * random.nextDouble());
+            projectiles.setSpeedY(shot, Projectile.getShotSpeedY(0));
+        }
+        return simulation;
+    }
+
+    private static void assertSameState(EntityStore expected, EntityStore actual) {
+        assertEquals(expected.size(), actual.size(), "size");
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getType(i), actual.getType(i), "type of " + i);
+            assertEquals(expected.getHandle(i), actual.getHandle(i), "handle of " + i);
+            assertBitEquals(expected.getPosX(i), actual.getPosX(i), "x of " + i);
+            assertBitEquals(expected.getPosY(i), actual.getPosY(i), "y of " + i);
+            assertBitEquals(expected.getInterpolatedPosX(i, 0), actual.getInterpolatedPosX(i, 0), "previous x of " + i);
+            assertBitEquals(expected.getInterpolatedPosY(i, 0), actual.getInterpolatedPosY(i, 0), "previous y of " + i);
+            assertBitEquals(expected.getRotationAngle(i), actual.getRotationAngle(i), "angle of " + i);
+        }
+    }
+
+    private static void assertBitEquals(double expected, double actual, String message) {
+        assertEquals(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(actual), message);
+    }
+}
@@ -0,0 +1,111 @@
+package spaceinvaders.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Timers of the wheel fire at their deadlines: repeating timers keep their cadence when one advance covers
+ * several periods and slots, and cancelled timers don't fire.
+ */
+class TimingWheelTest {
+    private static final int SLOTS = 8;
+    private static final double RESOLUTION = 10;
+
+    @Test
+    void oneShotTimerFiresOnceAtItsDeadline() {
+        TimingWheel wheel = new TimingWheel(SLOTS, RESOLUTION);
+        List<Double> fired = new ArrayList<>();
+        wheel.schedule(() -> fired.add(wheel.getTime()), 25);
+
+        wheel.advanceTo(24);
+        assertEquals(List.of(), fired);
+        wheel.advanceTo(25);
+        assertEquals(List.of(25.0), fired);
+        wheel.advanceTo(1000);
+        assertEquals(List.of(25.0), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void repeatingTimerKeepsCadenceAcrossLongTicks() {
+        TimingWheel wheel = new TimingWheel(SLOTS, RESOLUTION);
+        List<Double> deadlines = new ArrayList<>();
+        TimingWheel.Timer[] timer = new TimingWheel.Timer[1];
+        timer[0] = wheel.scheduleRepeating(() -> deadlines.add(timer[0].getDeadline()), 15, 15);
+
+        //one advance of 3 slots, then one longer than the whole wheel
+        wheel.advanceTo(35);
+        assertEquals(2, deadlines.size());
+        wheel.advanceTo(200);
+
+        //rescheduled at deadline + period, the deadline is moved before the action is run
+        assertEquals(13, deadlines.size());
+        for (int i = 0; i < deadlines.size(); i++)
+            assertEquals(15.0 * (i + 2), deadlines.get(i));
+        assertEquals(210, timer[0].getDeadline());
+        assertTrue(timer[0].isScheduled());
+    }
+
+    @Test
+    void timerOfLaterRoundStaysInItsSlot() {
+        TimingWheel wheel = new TimingWheel(SLOTS, RESOLUTION);
+        int[] fired = new int[1];
+        //the same slot as time 5, but one round of the wheel later
+        wheel.schedule(() -> fired[0]++, SLOTS * RESOLUTION + 5);
+
+        for (double time = 5; time < SLOTS * RESOLUTION + 5; time += RESOLUTION)
+            wheel.advanceTo(time);
+        assertEquals(0, fired[0]);
+        wheel.advanceTo(SLOTS * RESOLUTION + 5);
+        assertEquals(1, fired[0]);
+    }
+
+    @Test
+    void cancelledTimerDoesNotFire() {
+        TimingWheel wheel = new TimingWheel(SLOTS, RESOLUTION);
+        int[] fired = new int[3];
+        TimingWheel.Timer first = wheel.schedule(() -> fired[0]++, 20);
+        TimingWheel.Timer second = wheel.schedule(() -> fired[1]++, 20);
+        TimingWheel.Timer third = wheel.scheduleRepeating(() -> fired[2]++, 20, 20);
+
+        //the middle of the list of the slot and a repeating timer
+        assertTrue(wheel.cancel(second));
+        wheel.advanceTo(20);
+        assertTrue(wheel.cancel(third));
+        wheel.advanceTo(100);
+
+        assertEquals(1, fired[0]);
+        assertEquals(0, fired[1]);
+        assertEquals(1, fired[2]);
+        assertFalse(first.isScheduled());
+        assertFalse(wheel.cancel(second));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void actionCanCancelTimerOfTheSameSlot() {
+        TimingWheel wheel = new TimingWheel(SLOTS, RESOLUTION);
+        int[] fired = new int[1];
+        TimingWheel.Timer[] later = new TimingWheel.Timer[1];
+        wheel.schedule(() -> wheel.cancel(later[0]), 10);
+        later[0] = wheel.schedule(() -> fired[0]++, 15);
+
+        wheel.advanceTo(15);
+        assertEquals(0, fired[0]);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void timeCannotGoBack() {
+        TimingWheel wheel = new TimingWheel(SLOTS, RESOLUTION);
+        wheel.advanceTo(50);
+        assertThrows(IllegalArgumentException.class, () -> wheel.advanceTo(40));
+    }
+}
@@ -0,0 +1,109 @@
+package spaceinvaders.replay;
+
+import org.junit.jupiter.api.Test;
+import spaceinvaders.game.Ship;
+import spaceinvaders.game.Simulation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A recorded game that is written, read back and replayed ends in the same state as the original game,
+ * and files that are not complete replays of this version are rejected.
+ */
+class ReplayTest {
+    private static final long SEED = 7;
+    private static final int TICKS = 3_000;
+    private static final double TICK_TIME = 1000.0 / 60;
+    private static final Ship.Direction[] DIRECTIONS = Ship.Direction.values();
+
+    @Test
+    void replayOfWrittenGameGivesTheSameGame() throws IOException {
+        Simulation original = new Simulation();
+        original.setRecording(true);
+        original.startGame(SEED);
+        playScriptedGame(original);
+
+        Replay replay = Replay.read(new ByteArrayInputStream(toBytes(original.getReplay())));
+        assertEquals(SEED, replay.getSeed());
+        assertEquals(original.getTickCount(), replay.getNumTicks());
+        assertEquals(original.getReplay().getEvents(), replay.getEvents());
+
+        Simulation replayed = new Simulation();
+        ReplayPlayer player = new ReplayPlayer(replay, replayed);
+        player.start();
+        assertEquals(original.getTickCount(), player.runToEnd());
+
+        assertTrue(original.getScore() > 0, "the scripted game must score");
+        assertEquals(original.getTickCount(), replayed.getTickCount());
+        assertEquals(original.getScore(), replayed.getScore());
+        assertEquals(original.getNumLives(), replayed.getNumLives());
+        assertEquals(original.getLevel(), replayed.getLevel());
+        assertEquals(original.getWeaponLevel(), replayed.getWeaponLevel());
+        assertEquals(original.getShips().getPosX(0), replayed.getShips().getPosX(0));
+        assertEquals(original.getMeteors().size(), replayed.getMeteors().size());
+        for (int i = 0; i < original.getMeteors().size(); i++) {
+            assertEquals(original.getMeteors().getPosX(i), replayed.getMeteors().getPosX(i), "x of meteor " + i);
+            assertEquals(original.getMeteors().getPosY(i), replayed.getMeteors().getPosY(i), "y of meteor " + i);
+        }
+    }
+
+    @Test
+    void truncatedReplayIsRejected() throws IOException {
+        Simulation simulation = new Simulation();
+        simulation.setRecording(true);
+        simulation.startGame(SEED);
+        playScriptedGame(simulation);
+        byte[] bytes = toBytes(simulation.getReplay());
+
+        //cut in the header, in the events and before the last byte
+        for (int length : new int[] {0, 10, bytes.length / 2, bytes.length - 1}) {
+            byte[] truncated = Arrays.copyOf(bytes, length);
+            assertThrows(IOException.class, () -> Replay.read(new ByteArrayInputStream(truncated)),
+                    "length " + length);
+        }
+    }
+
+    @Test
+    void replayOfOtherVersionIsRejected() throws IOException {
+        byte[] bytes = toBytes(new Replay(SEED, 0, List.of()));
+        bytes[Integer.BYTES] = (byte) (Replay.VERSION + 1);
+
+        IOException exception = assertThrows(IOException.class, () -> Replay.read(new ByteArrayInputStream(bytes)));
+        assertTrue(exception.getMessage().contains("version"), exception.getMessage());
+    }
+
+    @Test
+    void fileThatIsNotReplayIsRejected() throws IOException {
+        byte[] bytes = toBytes(new Replay(SEED, 0, List.of()));
+        bytes[0] ^= 1;
+
+        assertThrows(IOException.class, () -> Replay.read(new ByteArrayInputStream(bytes)));
+    }
+
+    /**
+     * The ship changes direction every second and fires most of the time, every tenth tick is twice as long,
+     * so all kinds of events are recorded
+     */
+    private static void playScriptedGame(Simulation simulation) {
+        for (int tick = 0; tick < TICKS && !simulation.isGameOver(); tick++) {
+            if (tick % 60 == 0)
+                simulation.setPlayerShipDirection(DIRECTIONS[(tick / 60) % DIRECTIONS.length]);
+            simulation.setFireMode(tick % 300 < 250);
+            simulation.tick(tick % 10 == 0 ? 2 * TICK_TIME : TICK_TIME);
+        }
+    }
+
+    private static byte[] toBytes(Replay replay) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        replay.write(output);
+        return output.toByteArray();
+    }
+}